@@ -0,0 +1,25 @@
+package com.yieldstreet;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.quartz.SchedulerFactoryBeanCustomizer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * the parts of the virtual thread mode SpringBOOT does not do for us. with spring.threads.virtual.enabled=true on a
+ * Java 21 runtime (see application-virtual.properties) SpringBOOT already runs tomcat requests and the rabbit listener
+ * containers on virtual threads, this moves the quartz jobs (expiry and document integrity) across as well.
+ * the timing wheel ticker checks the same setting, see TimingWheelExpiryEngine. on Java 17 none of this is active.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    SchedulerFactoryBeanCustomizer virtualThreadQuartzCustomizer() {
+        return schedulerFactoryBean -> schedulerFactoryBean.setTaskExecutor(new VirtualThreadTaskExecutor("quartz-"));
+    }
+
+}
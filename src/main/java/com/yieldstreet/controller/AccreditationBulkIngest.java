@@ -0,0 +1,130 @@
+package com.yieldstreet.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yieldstreet.dto.AccreditationDTO;
+import com.yieldstreet.dto.BulkInsertResultDTO;
+import com.yieldstreet.service.AccreditationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * reads a bulk insert as NDJSON, one accreditation per line, and writes a result line back for each one in the
+ * same order as it goes. records are handed to the service accreditation-bulk-batch-size at a time, each batch is
+ * one transaction, so only one batch is ever held in memory however long the body is. a batch also goes early once
+ * its lines add up to accreditation-bulk-batch-max-chars, or once batch-size lines have been rejected, so memory
+ * stays bounded whatever the records hold. the results of a batch are flushed to the client once it has committed,
+ * so a client which is cut off knows how far it got.
+ * a line which is not valid JSON, or longer than accreditation-bulk-max-line-chars, is rejected on its own and the
+ * rest carry on. an over-long line is read past, not held.
+ */
+@Component
+public class AccreditationBulkIngest {
+    private static Logger logger = LoggerFactory.getLogger(AccreditationBulkIngest.class);
+
+    @Autowired
+    private AccreditationService accreditationService;
+
+    @Value("${accreditation-bulk-batch-size:500}")
+    private int batchSize;
+
+    @Value("${accreditation-bulk-max-line-chars:28000000}")
+    private int maxLineChars;
+
+    @Value("${accreditation-bulk-batch-max-chars:64000000}")
+    private long maxBatchChars;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void ingest(InputStream body, OutputStream out) throws IOException {
+        BoundedLineReader lines = new BoundedLineReader(new InputStreamReader(body, StandardCharsets.UTF_8), maxLineChars);
+        Writer results = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        List<Long> lineNumbers = new ArrayList<>(batchSize);
+        List<AccreditationDTO> batch = new ArrayList<>(batchSize);
+        // results of rejected lines wait for the batch they are in, to keep the output in order
+        List<BulkInsertResultDTO> unparsed = new ArrayList<>();
+        long batchChars = 0;
+        long lineNumber = 0;
+        long created = 0;
+        String line;
+        while((line = lines.readLine()) != null){
+            lineNumber++;
+            if(lines.wasTooLong()){
+                unparsed.add(rejected(lineNumber, "Line is longer than " + maxLineChars + " characters"));
+            }
+            else if(line.isBlank()){
+                continue;
+            }
+            else{
+                try{
+                    batch.add(objectMapper.readValue(line, AccreditationDTO.class));
+                    lineNumbers.add(lineNumber);
+                    batchChars += line.length();
+                }
+                catch(JsonProcessingException e){
+                    unparsed.add(rejected(lineNumber, "Invalid JSON: " + e.getOriginalMessage()));
+                }
+            }
+            if(batch.size() == batchSize || unparsed.size() == batchSize || batchChars >= maxBatchChars){
+                created += write(insert(batch), lineNumbers, unparsed, results);
+                batch.clear();
+                lineNumbers.clear();
+                unparsed.clear();
+                batchChars = 0;
+            }
+        }
+        created += write(insert(batch), lineNumbers, unparsed, results);
+        logger.info("Bulk insert of " + lineNumber + " lines created " + created + " accreditations");
+    }
+
+    private List<BulkInsertResultDTO> insert(List<AccreditationDTO> batch) {
+        return batch.isEmpty() ? List.of() : accreditationService.insertAccreditationBatch(batch);
+    }
+
+    private static BulkInsertResultDTO rejected(long lineNumber, String error) {
+        BulkInsertResultDTO rejected = BulkInsertResultDTO.rejected(null, error);
+        rejected.setLine(lineNumber);
+        return rejected;
+    }
+
+    /**
+     * merges the batch results with the rejected lines by line number, then flushes them
+     * @return how many were created
+     */
+    private long write(List<BulkInsertResultDTO> batchResults, List<Long> lineNumbers,
+                       List<BulkInsertResultDTO> unparsed, Writer results) throws IOException {
+        long created = 0;
+        int u = 0;
+        for(int i = 0; i < batchResults.size(); i++){
+            while(u < unparsed.size() && unparsed.get(u).getLine() < lineNumbers.get(i)){
+                writeLine(unparsed.get(u++), results);
+            }
+            BulkInsertResultDTO result = batchResults.get(i);
+            result.setLine(lineNumbers.get(i));
+            if(BulkInsertResultDTO.CREATED.equals(result.getResult())){
+                created++;
+            }
+            writeLine(result, results);
+        }
+        while(u < unparsed.size()){
+            writeLine(unparsed.get(u++), results);
+        }
+        results.flush();
+        return created;
+    }
+
+    private void writeLine(BulkInsertResultDTO result, Writer results) throws IOException {
+        results.write(objectMapper.writeValueAsString(result));
+        results.write('\n');
+    }
+
+}
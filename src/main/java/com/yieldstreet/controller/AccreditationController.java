@@ -1,17 +1,30 @@
 package com.yieldstreet.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yieldstreet.dto.*;
+import com.yieldstreet.entity.AccreditationType;
+import com.yieldstreet.service.AccreditationHistoryPage;
 import com.yieldstreet.service.AccreditationService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 /**
  * main entry point into the backend
  *
  * three endpoints:
- *   admin facing POST
- *   admin facing PUT
- *   client facing GET
+ *   admin facing POST, with the document in the JSON or streamed as the body
+ *   admin facing bulk POST, NDJSON in and out
+ *   admin facing PUT, and a bulk PUT for review sessions
+ *   client facing GET, and a lookup of many users at once
+ * and the document download for reviewers
  *
  * see the service layer for the business logic
  */
@@ -21,6 +34,17 @@ public class AccreditationController {
     @Autowired
     private AccreditationService accreditationService;
 
+    @Autowired
+    private DocumentResponseWriter documentResponseWriter;
+
+    @Autowired
+    private AccreditationBulkIngest accreditationBulkIngest;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+
     /**
      * endpoint for admin use
      * @param accreditation
@@ -32,6 +56,49 @@ public class AccreditationController {
         return accreditationService.insertAccreditation(accreditation);
     }
 
+    /**
+     * endpoint for admin use, the same insert but the body is the document itself (or its base64 with
+     * encoding=base64) and the request Content-Type is the document's mime type. the body is checked and
+     * stored as it is read, so large documents do not have to fit in memory. picked over the JSON insert
+     * by the user_id query parameter.
+     * @param userId
+     * @param type
+     * @param name
+     * @param encoding raw or base64
+     * @param request
+     * @return
+     */
+    @PostMapping(path= "/accreditation", params= {"user_id", "accreditation_type", "name"})
+    public @ResponseBody AccreditationIdDTO insertAccreditation(
+            @RequestParam("user_id") String userId,
+            @RequestParam("accreditation_type") AccreditationType type,
+            @RequestParam("name") String name,
+            @RequestParam(name= "encoding", defaultValue= "raw") String encoding,
+            HttpServletRequest request) throws IOException {
+        DocumentDTO document = new DocumentDTO();
+        document.setName(name);
+        document.setMimeType(request.getContentType());
+        AccreditationDTO accreditation = new AccreditationDTO();
+        accreditation.setUserId(userId);
+        accreditation.setType(type);
+        accreditation.setDocument(document);
+        return accreditationService.insertAccreditation(accreditation, request.getInputStream(),
+                "base64".equalsIgnoreCase(encoding), request.getContentLengthLong());
+    }
+
+    /**
+     * endpoint for admin use, loads accreditations in bulk. the body is NDJSON, one accreditation per line as for
+     * the JSON insert, and the response is NDJSON with a result per line (see AccreditationBulkIngest)
+     * @param request
+     * @param response
+     */
+    @PostMapping(path= "/accreditations:bulk")
+    public void insertAccreditations(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        accreditationBulkIngest.ingest(request.getInputStream(), response.getOutputStream());
+    }
+
     /**
      * endpoint for admin use
      * @param accreditationId
@@ -45,6 +112,18 @@ public class AccreditationController {
         return accreditationService.updateAccreditation(accreditationId, outcomeDTO);
     }
 
+    /**
+     * endpoint for admin use, outcomes for many accreditations in one call. the response has a result
+     * per item in the same order
+     * @param outcomes
+     * @return
+     */
+    @PutMapping(path= "/accreditations:bulk")
+    public @ResponseBody List<BulkOutcomeResultDTO> updateAccreditations(
+            @RequestBody List<BulkOutcomeDTO> outcomes) {
+        return accreditationService.updateAccreditations(outcomes);
+    }
+
     /**
      * endpoint for client facing traffic
      * @param userId
@@ -57,15 +136,76 @@ public class AccreditationController {
     }
 
     /**
-     * additional endpoint useful for testing
+     * endpoint for client facing traffic, the GET above for a batch of users in one call
+     * @param lookup
+     * @return
+     */
+    @PostMapping(path= "/accreditations:lookup")
+    public @ResponseBody UserAccreditationsLookupDTO lookupUserAccreditations(
+            @RequestBody UserLookupDTO lookup) {
+        return accreditationService.lookupUserAccreditations(lookup.getUserIds());
+    }
+
+    /**
+     * additional endpoint useful for testing, the history a page at a time in time order. the body is the
+     * page, and if there is more the cursor for the next page is in the Next-Cursor header. with no cursor and
+     * no limit it is the whole history
      * @param accreditationId
+     * @param cursor
+     * @param limit
      * @return
      */
     @GetMapping(path= "/history/{accreditation_id}")
-    public @ResponseBody
-    AccreditationHistoricTypeAndStatusDTO[] getAccreditationHistories(
-            @PathVariable("accreditation_id") String accreditationId) {
-        return accreditationService.getAccreditationHistories(accreditationId);
+    public ResponseEntity<AccreditationHistoricTypeAndStatusDTO[]> getAccreditationHistories(
+            @PathVariable("accreditation_id") String accreditationId,
+            @RequestParam(name= "cursor", required= false) String cursor,
+            @RequestParam(name= "limit", required= false) Integer limit) {
+        AccreditationHistoryPage page = accreditationService.getAccreditationHistories(accreditationId, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.getNextCursor() != null){
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getHistories());
+    }
+
+    /**
+     * the same history with format=ndjson, all of it from the cursor on, one entry per line written as each
+     * page is read from the database
+     * @param accreditationId
+     * @param cursor
+     * @param response
+     */
+    @GetMapping(path= "/history/{accreditation_id}", params= "format=ndjson")
+    public void streamAccreditationHistories(
+            @PathVariable("accreditation_id") String accreditationId,
+            @RequestParam(name= "cursor", required= false) String cursor,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        accreditationService.streamAccreditationHistories(accreditationId, cursor, history -> {
+            try{
+                out.write(objectMapper.writeValueAsString(history));
+                out.write('\n');
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    /**
+     * endpoint for admin use, streams the document with Range and ETag support (see DocumentResponseWriter)
+     * @param accreditationId
+     * @param request
+     * @param response
+     */
+    @GetMapping(path= "/accreditation/{accreditation_id}/document")
+    public void getAccreditationDocument(
+            @PathVariable("accreditation_id") String accreditationId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        documentResponseWriter.write(accreditationService.getAccreditationDocument(accreditationId), request, response);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package com.yieldstreet.controller;
+
+import com.yieldstreet.export.AccreditationExporter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * the compliance export over HTTP, see AccreditationExporter. for admin use only, the whole of both tables is sent.
+ * the same export can be run from the command line, see AccreditationExportRunner
+ */
+@RestController
+@RequestMapping(path="/admin")
+public class AdminExportController {
+    @Autowired
+    private AccreditationExporter accreditationExporter;
+
+    /**
+     * @param format jsonl or csv
+     * @param gzip
+     * @param response
+     */
+    @GetMapping(path= "/export")
+    public void export(@RequestParam(name= "format", defaultValue= "jsonl") String format,
+                       @RequestParam(name= "gzip", defaultValue= "false") boolean gzip,
+                       HttpServletResponse response) throws IOException {
+        AccreditationExporter.Format exportFormat;
+        try{
+            exportFormat = AccreditationExporter.Format.valueOf(format.toUpperCase());
+        }
+        catch(IllegalArgumentException e){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format: " + format);
+        }
+        String fileName = "accreditations-" + LocalDate.now() + "." + format.toLowerCase() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip"
+                : exportFormat == AccreditationExporter.Format.CSV ? "text/csv;charset=UTF-8" : "application/jsonl;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString());
+        accreditationExporter.export(response.getOutputStream(), exportFormat, gzip);
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.yieldstreet.controller;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * reads lines like BufferedReader.readLine, but never holds more than maxChars of one. the rest of a longer line
+ * is read past and thrown away, the line comes back empty and wasTooLong says so.
+ */
+class BoundedLineReader {
+
+    private final Reader in;
+    private final int maxChars;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder line = new StringBuilder();
+    private int pos;
+    private int end;
+    private boolean tooLong;
+
+    BoundedLineReader(Reader in, int maxChars) {
+        this.in = in;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * the next line without its \n or \r\n, null at the end of the input
+     */
+    String readLine() throws IOException {
+        line.setLength(0);
+        tooLong = false;
+        boolean read = false;
+        while(true){
+            if(pos == end){
+                int n = in.read(buffer, 0, buffer.length);
+                if(n < 0){
+                    return read ? finish() : null;
+                }
+                pos = 0;
+                end = n;
+            }
+            read = true;
+            int start = pos;
+            while(pos < end && buffer[pos] != '\n'){
+                pos++;
+            }
+            if(!tooLong){
+                if(line.length() + (pos - start) > maxChars){
+                    tooLong = true;
+                    line.setLength(0);
+                }
+                else{
+                    line.append(buffer, start, pos - start);
+                }
+            }
+            if(pos < end){
+                // past the \n
+                pos++;
+                return finish();
+            }
+        }
+    }
+
+    /**
+     * the last line read was longer than maxChars
+     */
+    boolean wasTooLong() {
+        return tooLong;
+    }
+
+    private String finish() {
+        int length = line.length();
+        if(length > 0 && line.charAt(length - 1) == '\r'){
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+
+}
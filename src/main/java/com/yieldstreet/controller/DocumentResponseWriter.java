@@ -0,0 +1,154 @@
+package com.yieldstreet.controller;
+
+import com.yieldstreet.document.DocumentDownload;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * writes a document to the response without ever holding it in memory. the ETag is the blob hash so a client
+ * which has the document already gets a 304, and a single byte Range gets a 206 (more than one range, or an
+ * If-Range that no longer matches, gets the whole document which RFC 9110 allows).
+ * an uncompressed blob on local disk is handed to tomcat to send with sendfile, the bytes go from the page cache
+ * to the socket without coming through the JVM. failing that it goes through FileChannel.transferTo, and
+ * a compressed blob is inflated through a small buffer as it is written.
+ */
+@Component
+public class DocumentResponseWriter {
+
+    // set by tomcat's NIO connectors when sendfile is available, see the tomcat docs on "sendfile"
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    public void write(DocumentDownload document, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String etag = "\"" + document.getHash() + "\"";
+        long size = document.getSize();
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if(matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)){
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(contentType(document.getMimeType()));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                .filename(document.getName() == null ? document.getHash() : document.getName(), StandardCharsets.UTF_8)
+                .build().toString());
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if(range != null && (ifRange == null || ifRange.equals(etag))){
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            }
+            catch(IllegalArgumentException e){
+                ranges = List.of();
+            }
+            if(ranges.size() == 1){
+                HttpRange requested = ranges.get(0);
+                try {
+                    start = requested.getRangeStart(size);
+                    end = requested.getRangeEnd(size);
+                }
+                catch(IllegalArgumentException e){
+                    start = size;
+                }
+                if(start >= size || end < start){
+                    // starts past the end of the document
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+        long length = Math.max(0, end - start + 1);
+        response.setContentLengthLong(length);
+        if(length == 0 || "HEAD".equals(request.getMethod())){
+            return;
+        }
+
+        if(document.getFile() != null){
+            long fileStart = document.getDataOffset() + start;
+            if(Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))){
+                request.setAttribute(SENDFILE_FILENAME, document.getFile().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, fileStart);
+                request.setAttribute(SENDFILE_END, fileStart + length);
+                return;
+            }
+            try (FileChannel file = FileChannel.open(document.getFile(), StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long sent = 0;
+                while(sent < length){
+                    long n = file.transferTo(fileStart + sent, length - sent, out);
+                    if(n <= 0){
+                        break;
+                    }
+                    sent += n;
+                }
+            }
+            return;
+        }
+
+        try (InputStream in = document.openContent()) {
+            in.skipNBytes(start);
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = length;
+            while(remaining > 0){
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if(n < 0){
+                    break;
+                }
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if(ifNoneMatch == null){
+            return false;
+        }
+        for(String candidate : ifNoneMatch.split(",")){
+            String tag = candidate.trim();
+            if(tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String contentType(String mimeType) {
+        try {
+            return MediaType.parseMediaType(mimeType).toString();
+        }
+        catch(InvalidMediaTypeException e){
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.yieldstreet.document;
+
+import com.yieldstreet.exception.DocumentTypeMismatchException;
+import com.yieldstreet.exception.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * checks the first bytes of an upload against the mime type it was declared as, so a file which is not what it
+ * says it is gets turned away before it is stored. only the types with a signature can be checked, anything else
+ * is let through unless it starts like one of the types we do know.
+ */
+final class ContentSniffer {
+
+    // enough for the longest signature below
+    static final int SNIFF_LENGTH = 8;
+
+    private static final String ZIP = "application/zip";
+    private static final String OLE = "application/x-ole-storage";
+
+    private static final Map<String, List<byte[]>> SIGNATURES = new LinkedHashMap<>();
+    static {
+        SIGNATURES.put("application/pdf", List.of(ascii("%PDF-")));
+        SIGNATURES.put("image/png", List.of(bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)));
+        SIGNATURES.put("image/jpeg", List.of(bytes(0xFF, 0xD8, 0xFF)));
+        SIGNATURES.put("image/gif", List.of(ascii("GIF87a"), ascii("GIF89a")));
+        SIGNATURES.put("image/tiff", List.of(bytes('I', 'I', 0x2A, 0x00), bytes('M', 'M', 0x00, 0x2A)));
+        SIGNATURES.put(ZIP, List.of(bytes('P', 'K', 0x03, 0x04)));
+        SIGNATURES.put(OLE, List.of(bytes(0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)));
+    }
+
+    // office formats are containers, a docx is a zip and a doc is an OLE compound file
+    private static final Map<String, String> CONTAINERS = Map.of(
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document", ZIP,
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", ZIP,
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation", ZIP,
+            "application/msword", OLE,
+            "application/vnd.ms-excel", OLE,
+            "application/vnd.ms-powerpoint", OLE);
+
+    private ContentSniffer() {
+    }
+
+    /**
+     * @param mimeType as declared by the uploader
+     * @param head the first bytes of the content, fewer than SNIFF_LENGTH if the content is that short
+     */
+    static void check(String mimeType, byte[] head) {
+        String declared = baseType(mimeType);
+        String expected = CONTAINERS.getOrDefault(declared, SIGNATURES.containsKey(declared) ? declared : null);
+        String detected = detect(head);
+        if(expected != null && !expected.equals(detected)){
+            throw new DocumentTypeMismatchException(mimeType, detected == null ? "unknown" : detected);
+        }
+        // octet-stream says nothing about the content so anything goes
+        if(expected == null && detected != null && !"application/octet-stream".equals(declared)){
+            throw new DocumentTypeMismatchException(mimeType, detected);
+        }
+    }
+
+    static String detect(byte[] head) {
+        for(Map.Entry<String, List<byte[]>> entry : SIGNATURES.entrySet()){
+            for(byte[] signature : entry.getValue()){
+                if(head.length >= signature.length
+                        && Arrays.equals(head, 0, signature.length, signature, 0, signature.length)){
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String baseType(String mimeType) {
+        try {
+            MimeType type = MimeType.valueOf(mimeType);
+            return (type.getType() + "/" + type.getSubtype()).toLowerCase();
+        }
+        catch(org.springframework.util.InvalidMimeTypeException e){
+            throw new InvalidMimeTypeException(mimeType);
+        }
+    }
+
+    private static byte[] ascii(String signature) {
+        return signature.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] bytes(int... signature) {
+        byte[] result = new byte[signature.length];
+        for(int i = 0; i < signature.length; i++){
+            result[i] = (byte) signature[i];
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.yieldstreet.document;
+
+import com.yieldstreet.exception.DocumentStoreException;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * how document content is laid out in a blob. a blob starts with a 7 byte header:
+ *   magic "YSDC", format version, codec, encoding
+ * then the content, compressed by the codec. the codec is picked from the mime type, formats which are already
+ * compressed (images, zips) are stored as they are since deflating them again only costs CPU.
+ * the encoding says what the content is: RAW is the document bytes (the uploaded base64 decoded), TEXT is the
+ * uploaded string as UTF-8 when it was not base64.
+ * blobs written before this header existed have no magic, they are read back as TEXT stored uncompressed.
+ * both directions stream, nothing here holds a whole document in memory.
+ */
+public class DocumentCodec {
+
+    public enum Codec { STORED, DEFLATE }
+
+    public enum Encoding { RAW, TEXT }
+
+    static final byte[] MAGIC = {'Y', 'S', 'D', 'C'};
+    static final byte FORMAT_VERSION = 1;
+    static final int HEADER_LENGTH = MAGIC.length + 3;
+    // the streams default to 512 bytes which costs a lot of throughput
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // deflating these again gains next to nothing
+    private static final Set<String> PRECOMPRESSED_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/heic",
+            "application/zip", "application/gzip", "application/x-7z-compressed",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    private DocumentCodec() {
+    }
+
+    public static Codec codecFor(String mimeType) {
+        if(mimeType == null){
+            return Codec.DEFLATE;
+        }
+        String type = mimeType.toLowerCase();
+        int parameters = type.indexOf(';');
+        if(parameters >= 0){
+            type = type.substring(0, parameters).trim();
+        }
+        return PRECOMPRESSED_TYPES.contains(type) || type.startsWith("video/") || type.startsWith("audio/")
+                ? Codec.STORED : Codec.DEFLATE;
+    }
+
+    /**
+     * the blob to store for the content, compressed as it is read
+     */
+    public static InputStream encode(InputStream content, Codec codec, Encoding encoding) {
+        byte[] header = Arrays.copyOf(MAGIC, HEADER_LENGTH);
+        header[MAGIC.length] = FORMAT_VERSION;
+        header[MAGIC.length + 1] = (byte) codec.ordinal();
+        header[MAGIC.length + 2] = (byte) encoding.ordinal();
+        InputStream body = codec == Codec.DEFLATE ? deflating(content) : content;
+        return new SequenceInputStream(new ByteArrayInputStream(header), body);
+    }
+
+    /**
+     * reads the header off a stored blob, the returned stream inflates the content as the caller reads it
+     */
+    public static Decoded decode(InputStream blob) {
+        try {
+            PushbackInputStream in = new PushbackInputStream(blob, HEADER_LENGTH);
+            byte[] header = in.readNBytes(HEADER_LENGTH);
+            if(header.length < HEADER_LENGTH || !Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)){
+                // from before the header, the content was stored verbatim
+                in.unread(header);
+                return new Decoded(in, Codec.STORED, Encoding.TEXT, 0);
+            }
+            if(header[MAGIC.length] != FORMAT_VERSION){
+                throw new IOException("Unsupported document blob format " + header[MAGIC.length]);
+            }
+            Codec codec = Codec.values()[header[MAGIC.length + 1]];
+            Encoding encoding = Encoding.values()[header[MAGIC.length + 2]];
+            return new Decoded(codec == Codec.DEFLATE ? inflating(in) : in, codec, encoding, HEADER_LENGTH);
+        }
+        catch(IOException | ArrayIndexOutOfBoundsException e){
+            throw new DocumentStoreException(null, e);
+        }
+    }
+
+    // the streams only release their zlib memory on close if they made the (de)inflater themselves
+    private static InputStream deflating(InputStream content) {
+        return new DeflaterInputStream(content, new Deflater(Deflater.BEST_SPEED), BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                }
+                finally {
+                    def.end();
+                }
+            }
+        };
+    }
+
+    private static InputStream inflating(InputStream blob) {
+        return new InflaterInputStream(blob, new Inflater(), BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                }
+                finally {
+                    inf.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * the content of a blob, still to be read. closing it closes the blob.
+     */
+    public static class Decoded implements Closeable {
+        private final InputStream content;
+        private final Codec codec;
+        private final Encoding encoding;
+        private final int dataOffset;
+
+        Decoded(InputStream content, Codec codec, Encoding encoding, int dataOffset) {
+            this.content = content;
+            this.codec = codec;
+            this.encoding = encoding;
+            this.dataOffset = dataOffset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            content.close();
+        }
+
+        /**
+         * where the content starts in the blob, for a STORED blob the content is the rest of it as is
+         */
+        public int getDataOffset() {
+            return dataOffset;
+        }
+
+        public InputStream getContent() {
+            return content;
+        }
+
+        public Codec getCodec() {
+            return codec;
+        }
+
+        public Encoding getEncoding() {
+            return encoding;
+        }
+    }
+
+}
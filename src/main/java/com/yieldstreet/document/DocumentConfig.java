@@ -0,0 +1,39 @@
+package com.yieldstreet.document;
+
+import org.quartz.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * registers the document integrity verifier with quartz, see application.properties for how often it runs.
+ */
+@Configuration
+public class DocumentConfig {
+
+    @Value("${accreditation-document-verify-interval-millis:3600000}")
+    private long verifyIntervalMillis;
+
+    @Bean
+    JobDetail documentIntegrityJobDetail() {
+        return JobBuilder.newJob(DocumentIntegrityJob.class)
+                .withIdentity("documentIntegrityVerifier")
+                .withDescription("Verify and garbage collect the document store")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    Trigger documentIntegrityTrigger(JobDetail documentIntegrityJobDetail) {
+        return TriggerBuilder.newTrigger()
+                .withIdentity("documentIntegrityVerifier")
+                .forJob(documentIntegrityJobDetail)
+                .startAt(DateBuilder.futureDate((int) (verifyIntervalMillis / 1000), DateBuilder.IntervalUnit.SECOND))
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                        .withIntervalInMilliseconds(verifyIntervalMillis)
+                        .repeatForever()
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .build();
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.yieldstreet.document;
+
+import com.yieldstreet.entity.Document;
+import com.yieldstreet.exception.DocumentStoreException;
+import com.yieldstreet.repository.DocumentBlobRepository;
+import com.yieldstreet.exception.DocumentTooLargeException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+
+/**
+ * puts document content in the DocumentStore and keeps the document_blob reference counts in step.
+ * content is stored as the document bytes, compressed where that helps, see DocumentCodec.
+ * the blob is written before the transaction commits, so if it rolls back the blob may be left without a
+ * row, the integrity verifier removes those once they are old enough.
+ */
+@Service
+public class DocumentContentService {
+
+    @Autowired
+    private DocumentStore documentStore;
+
+    @Autowired
+    private DocumentBlobRepository documentBlobRepository;
+
+    // the largest upload we accept, decoded
+    @Value("${accreditation-document-max-bytes:20971520}")
+    private long maxDocumentBytes;
+
+    /**
+     * the content as it arrives in the JSON body, normally base64. that is decoded so we store the document
+     * rather than a third more text, anything which is not base64 is kept as the text it is.
+     * the document's mime type must already be set, it picks the codec.
+     * @param document
+     * @param content
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void storeContent(Document document, String content) {
+        checkContentSize(content);
+        String text = content == null ? "" : content;
+        byte[] raw;
+        try {
+            raw = Base64.getDecoder().decode(text);
+        }
+        catch(IllegalArgumentException notBase64){
+            storeContent(document, new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), DocumentCodec.Encoding.TEXT);
+            return;
+        }
+        storeContent(document, new ByteArrayInputStream(raw), DocumentCodec.Encoding.RAW);
+    }
+
+    /**
+     * the limit on uploads for content which came in the JSON, where it is already in memory. base64 is judged by
+     * what it decodes to.
+     * @throws DocumentTooLargeException
+     */
+    public void checkContentSize(String content) {
+        if(content != null && DocumentUpload.minDecodedLength(content.length(), true) > maxDocumentBytes){
+            throw new DocumentTooLargeException(maxDocumentBytes);
+        }
+    }
+
+    /**
+     * the content as a streamed upload, see DocumentUpload. it is written to the store as it is read, an upload
+     * which says up front that it is too big is refused before any of it is read.
+     * there must be no transaction open: the body comes as fast as the client sends it, and nothing should hold a
+     * database connection meanwhile. the blob is not counted until attach is called from the transaction saving
+     * the document, if that never happens the integrity verifier collects it after the grace period.
+     * @param mimeType the document's mime type, the content is checked against it
+     * @param body
+     * @param base64 the body is base64 text rather than the document bytes
+     * @param contentLength the length of the body, -1 if not known
+     */
+    @Transactional(propagation = Propagation.NEVER)
+    public StoredContent storeUpload(String mimeType, InputStream body, boolean base64, long contentLength) {
+        if(DocumentUpload.minDecodedLength(contentLength, base64) > maxDocumentBytes){
+            throw new DocumentTooLargeException(maxDocumentBytes);
+        }
+        return write(mimeType, DocumentUpload.open(body, base64, mimeType, maxDocumentBytes), DocumentCodec.Encoding.RAW);
+    }
+
+    /**
+     * counts the reference to content stored by storeUpload and points the document at it,
+     * must be called inside the transaction saving the document
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void attach(Document document, StoredContent content) {
+        StoredBlob blob = content.getBlob();
+        documentBlobRepository.addReference(blob.getHash(), blob.getSize(), System.currentTimeMillis());
+        document.setContentHash(blob.getHash());
+        document.setSize(content.getSize());
+    }
+
+    /**
+     * stores the content and points the document at it, must be called inside the transaction saving the document.
+     * the document size is the size of the content, the blob may be smaller.
+     * @param document
+     * @param content
+     * @param encoding
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void storeContent(Document document, InputStream content, DocumentCodec.Encoding encoding) {
+        attach(document, write(document.getMimeType(), content, encoding));
+    }
+
+    private StoredContent write(String mimeType, InputStream content, DocumentCodec.Encoding encoding) {
+        CountingInputStream counted = new CountingInputStream(content);
+        StoredBlob blob = documentStore.put(DocumentCodec.encode(counted, DocumentCodec.codecFor(mimeType), encoding));
+        return new StoredContent(blob, counted.getCount());
+    }
+
+    /**
+     * nothing is read or inflated until the caller reads the content, and the caller must close it
+     */
+    public DocumentCodec.Decoded openContent(Document document) {
+        return DocumentCodec.decode(documentStore.open(document.getContentHash()));
+    }
+
+    /**
+     * only the blob header is read here, the content is read when it is sent
+     */
+    public DocumentDownload download(Document document) {
+        String hash = document.getContentHash();
+        DocumentCodec.Codec codec;
+        int dataOffset;
+        try (DocumentCodec.Decoded header = DocumentCodec.decode(documentStore.open(hash))) {
+            codec = header.getCodec();
+            dataOffset = header.getDataOffset();
+        }
+        catch(IOException e){
+            throw new DocumentStoreException(hash, e);
+        }
+        Path file = codec == DocumentCodec.Codec.STORED ? documentStore.localPath(hash).orElse(null) : null;
+        return new DocumentDownload(document.getName(), document.getMimeType(), hash, document.getSize(), file,
+                dataOffset, () -> openContent(document).getContent());
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.yieldstreet.document;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * what the document download endpoint needs to send a document, without having read any of it yet.
+ * when the blob is an uncompressed local file the content is the bytes of that file from dataOffset on,
+ * and can be sent from the file as it is. otherwise it has to be read through openContent.
+ */
+public class DocumentDownload {
+
+    private final String name;
+    private final String mimeType;
+    private final String hash;
+    private final long size;
+    private final Path file;
+    private final long dataOffset;
+    private final Supplier<InputStream> content;
+
+    public DocumentDownload(String name, String mimeType, String hash, long size, Path file, long dataOffset,
+                     Supplier<InputStream> content) {
+        this.name = name;
+        this.mimeType = mimeType;
+        this.hash = hash;
+        this.size = size;
+        this.file = file;
+        this.dataOffset = dataOffset;
+        this.content = content;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * the SHA-256 of the blob, it changes whenever the content does so it makes a strong ETag
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * null unless the content can be sent straight from a file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    /**
+     * the caller must close the stream
+     */
+    public InputStream openContent() {
+        return content.get();
+    }
+
+}
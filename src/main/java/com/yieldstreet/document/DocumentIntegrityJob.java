@@ -0,0 +1,24 @@
+package com.yieldstreet.document;
+
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Spring autowires this when quartz instantiates it for each firing, a run can take a while on a
+ * large store so concurrent execution is disallowed.
+ */
+@DisallowConcurrentExecution
+public class DocumentIntegrityJob extends QuartzJobBean {
+
+    @Autowired
+    private DocumentIntegrityVerifier documentIntegrityVerifier;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        documentIntegrityVerifier.verify();
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.yieldstreet.document;
+
+import com.yieldstreet.entity.DocumentBlob;
+import com.yieldstreet.repository.DocumentBlobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * checks the DocumentStore and the document_blob table agree. every referenced blob must be there and still hash to
+ * its name, anything else is logged and counted so it can be alerted on - nothing is repaired automatically.
+ * it also garbage collects blobs left behind by uploads whose transaction rolled back, the ones with no row,
+ * once they are older than the grace period so an upload still in flight is not caught. documents are never
+ * deleted or given new content, so a blob with a row is always in use and never collected.
+ */
+@Service
+public class DocumentIntegrityVerifier {
+    private static Logger logger = LoggerFactory.getLogger(DocumentIntegrityVerifier.class);
+
+    @Value("${accreditation-document-verify-page-size:500}")
+    private int pageSize;
+
+    @Value("${accreditation-document-orphan-grace-millis:3600000}")
+    private long orphanGraceMillis;
+
+    @Autowired
+    private DocumentStore documentStore;
+
+    @Autowired
+    private DocumentBlobRepository documentBlobRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter missing;
+    private Counter corrupt;
+    private Counter collected;
+    private Timer verifyTimer;
+
+    @PostConstruct
+    void registerMetrics(){
+        missing = Counter.builder("accreditation.document.integrity.missing")
+                .description("Referenced document blobs not found in the store")
+                .register(meterRegistry);
+        corrupt = Counter.builder("accreditation.document.integrity.corrupt")
+                .description("Document blobs whose content no longer matches their hash")
+                .register(meterRegistry);
+        collected = Counter.builder("accreditation.document.integrity.collected")
+                .description("Unreferenced document blobs deleted")
+                .register(meterRegistry);
+        verifyTimer = Timer.builder("accreditation.document.integrity")
+                .description("Time taken by one document integrity run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * one run, called on the quartz thread. quartz will not run two at once (see DocumentIntegrityJob).
+     */
+    public void verify(){
+        verifyTimer.record(() -> {
+            verifyReferencedBlobs();
+            collectOrphanedBlobs();
+        });
+    }
+
+    private void verifyReferencedBlobs(){
+        String afterHash = "";
+        List<DocumentBlob> page;
+        do {
+            page = documentBlobRepository.findPage(afterHash, Limit.of(pageSize));
+            for(DocumentBlob blob : page){
+                String hash = blob.getHash();
+                if(!documentStore.exists(hash)){
+                    logger.error("Document blob missing from the store: " + hash);
+                    missing.increment();
+                }
+                else if(!documentStore.verify(hash)){
+                    logger.error("Document blob does not match its hash: " + hash);
+                    corrupt.increment();
+                }
+            }
+            if(!page.isEmpty()){
+                afterHash = page.get(page.size() - 1).getHash();
+            }
+        } while(page.size() == pageSize);
+    }
+
+    /**
+     * blobs in the store with no row at all. this first look takes no locks, collect checks again properly.
+     */
+    private void collectOrphanedBlobs(){
+        long cutoff = System.currentTimeMillis() - orphanGraceMillis;
+        documentStore.forEach(hash -> {
+            if(!documentBlobRepository.existsById(hash) && documentStore.createdTime(hash) < cutoff){
+                collect(hash, cutoff);
+            }
+        });
+    }
+
+    /**
+     * an upload of the same content may be claiming the blob right now: its put refreshes the created time, then its
+     * transaction adds the row. the row (or the gap for it) stays locked until the file is gone, so the row can not
+     * appear in between, and the store only deletes the file if the time is still old (see deleteIfOlderThan).
+     */
+    private void collect(String hash, long cutoff){
+        Boolean deleted = transactionTemplate.execute(status ->
+                documentBlobRepository.findForUpdate(hash).isEmpty() && documentStore.deleteIfOlderThan(hash, cutoff));
+        if(Boolean.TRUE.equals(deleted)){
+            logger.debug("Deleted orphaned document blob: " + hash);
+            collected.increment();
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.yieldstreet.document;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * where the bytes of uploaded documents live, outside the database. content is addressed by the SHA-256 of its
+ * bytes so the same statement uploaded for several accreditations is only stored once. the store itself knows
+ * nothing about who uses a blob, the references are counted in the document_blob table (see DocumentContentService).
+ * implementations must be safe to call from many threads at once.
+ */
+public interface DocumentStore {
+
+    String STORE_PROPERTY = "accreditation-document-store";
+
+    /**
+     * streams the content into the store, it is never held in memory as a whole. storing content which
+     * is already there is cheap, the existing blob is kept but its created time is moved to now so the
+     * garbage collector treats it as a fresh upload.
+     * @return the hash and size of what was read
+     * @throws com.yieldstreet.exception.DocumentStoreException
+     */
+    StoredBlob put(InputStream content);
+
+    /**
+     * the caller must close the stream
+     * @throws com.yieldstreet.exception.DocumentStoreException if there is no such blob
+     */
+    InputStream open(String hash);
+
+    boolean exists(String hash);
+
+    /**
+     * the blob as a local file, when the store has one, so it can be sent straight from the file to the socket
+     */
+    default Optional<Path> localPath(String hash) {
+        return Optional.empty();
+    }
+
+    /**
+     * deletes the blob if its created time is before the cutoff, for the garbage collector. a put of the same
+     * content racing with this must either move the created time before it is checked, or find the blob gone
+     * and store it again, so a put which returned is never left without its blob.
+     * @return true if the blob was deleted
+     */
+    boolean deleteIfOlderThan(String hash, long cutoff);
+
+    /**
+     * every blob in the store, for the integrity verifier
+     */
+    void forEach(Consumer<String> hashConsumer);
+
+    /**
+     * reads the blob back and checks it still hashes to its name
+     */
+    boolean verify(String hash);
+
+    /**
+     * when the blob was last written or stored again, in epoch millis
+     */
+    long createdTime(String hash);
+
+}
@@ -0,0 +1,163 @@
+package com.yieldstreet.document;
+
+import com.yieldstreet.exception.DocumentTooLargeException;
+import com.yieldstreet.exception.InvalidDocumentContentException;
+
+import java.io.*;
+import java.util.Base64;
+
+/**
+ * turns an upload body into the document content as it is read. base64 is decoded on the fly, the decoded size is
+ * held to a limit, and the first bytes are checked against the declared type (see ContentSniffer) before anything
+ * is handed on. so only a small buffer of the upload is ever in memory, and a bad upload fails on its first chunk
+ * or as soon as it goes over the limit rather than after it has all arrived.
+ */
+final class DocumentUpload {
+
+    private DocumentUpload() {
+    }
+
+    /**
+     * @param body the request body, read once and not closed here
+     * @param base64 true if the body is base64 text rather than the document bytes
+     * @param mimeType the declared type of the document
+     * @param maxBytes the most decoded bytes we accept
+     * @return the document content, which throws DocumentTooLargeException or InvalidDocumentContentException
+     * while it is read if the upload turns out to be bad
+     */
+    static InputStream open(InputStream body, boolean base64, String mimeType, long maxBytes) {
+        InputStream content = base64
+                ? new DecodeErrors(Base64.getDecoder().wrap(new ReadErrors(body)))
+                : body;
+        InputStream limited = new SizeLimit(content, maxBytes);
+        byte[] head;
+        try {
+            head = limited.readNBytes(ContentSniffer.SNIFF_LENGTH);
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        ContentSniffer.check(mimeType, head);
+        return new SequenceInputStream(new ByteArrayInputStream(head), limited);
+    }
+
+    /**
+     * the least a body of the given length can decode to, -1 if the length is not known
+     */
+    static long minDecodedLength(long contentLength, boolean base64) {
+        if(contentLength < 0){
+            return -1;
+        }
+        // up to two of the last group of four can be padding
+        return base64 ? Math.max(0, contentLength / 4 * 3 - 2) : contentLength;
+    }
+
+    /**
+     * fails the read as soon as more than maxBytes have come through
+     */
+    private static class SizeLimit extends FilterInputStream {
+
+        private final long maxBytes;
+
+        private long count;
+
+        SizeLimit(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0){
+                counted(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if(n > 0){
+                counted(n);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void counted(int n) {
+            count += n;
+            if(count > maxBytes){
+                throw new DocumentTooLargeException(maxBytes);
+            }
+        }
+    }
+
+    /**
+     * failures reading the body itself are passed on unchecked, so that any IOException out of the base64
+     * decoder above it is a problem with the encoding and not with the connection
+     */
+    private static class ReadErrors extends FilterInputStream {
+
+        ReadErrors(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() {
+            try {
+                return super.read();
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            try {
+                return super.read(b, off, len);
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            // the body belongs to the container
+        }
+    }
+
+    private static class DecodeErrors extends FilterInputStream {
+
+        DecodeErrors(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() {
+            try {
+                return super.read();
+            }
+            catch(IOException e){
+                throw new InvalidDocumentContentException(e.getMessage());
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            try {
+                return super.read(b, off, len);
+            }
+            catch(IOException e){
+                throw new InvalidDocumentContentException(e.getMessage());
+            }
+        }
+    }
+
+}
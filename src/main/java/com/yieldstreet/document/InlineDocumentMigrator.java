@@ -0,0 +1,70 @@
+package com.yieldstreet.document;
+
+import com.yieldstreet.entity.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * one off migration of documents whose content is still inline in the document table, from before the
+ * DocumentStore. start the app with --accreditation-document-migrate=true and it moves them all across at startup,
+ * a page per transaction, and blanks the inline copy. it is safe to stop and run again, it carries on from where
+ * it was. nothing reads the inline content any more so the app can be serving while this runs.
+ */
+@Component
+@ConditionalOnProperty(name = "accreditation-document-migrate", havingValue = "true")
+public class InlineDocumentMigrator implements ApplicationRunner {
+    private static Logger logger = LoggerFactory.getLogger(InlineDocumentMigrator.class);
+
+    @Value("${accreditation-document-migrate-page-size:200}")
+    private int pageSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        logger.info("Migrating inline document content to the document store");
+        long migrated = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> migratePage());
+            migrated += moved;
+            logger.info("Migrated " + migrated + " documents so far");
+        } while(moved == pageSize);
+        logger.info("Inline document migration finished, " + migrated + " documents migrated");
+    }
+
+    /**
+     * the migrated rows drop out of the where clause, so each page is just the first rows left
+     */
+    private int migratePage(){
+        List<Map<String, Object>> page = jdbcTemplate.queryForList(
+                "select id, mime_type, content from document where content_hash is null order by id limit ? for update", pageSize);
+        for(Map<String, Object> row : page){
+            Document doc = new Document();
+            doc.setMimeType((String) row.get("mime_type"));
+            documentContentService.storeContent(doc, (String) row.get("content"));
+            jdbcTemplate.update("update document set content_hash = ?, size = ?, content = null where id = ?",
+                    doc.getContentHash(), doc.getSize(), row.get("id"));
+        }
+        return page.size();
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.yieldstreet.document;
+
+import com.yieldstreet.exception.DocumentStoreException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * the default DocumentStore, blobs are files named by their hash under accreditation-document-store-root,
+ * fanned out over two levels of directories (ab/cd/abcd...) so no one directory gets huge.
+ * content is streamed to a temp file while it is hashed, synced, and then renamed into place. the rename is atomic
+ * so a reader never sees half a blob, and two uploads of the same content just rename the same bytes over each other.
+ * storing content which is already there refreshes the file's modified time, which is what createdTime reports.
+ * the root must be on storage shared by every instance, or each instance needs its own database.
+ */
+@Component
+@ConditionalOnProperty(name = DocumentStore.STORE_PROPERTY, havingValue = "local", matchIfMissing = true)
+public class LocalFileSystemDocumentStore implements DocumentStore {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Value("${accreditation-document-store-root}")
+    private Path root;
+
+    private Path tmp;
+
+    @PostConstruct
+    void init() throws IOException {
+        tmp = root.resolve("tmp");
+        Files.createDirectories(tmp);
+    }
+
+    @Override
+    public StoredBlob put(InputStream content) {
+        Path part = null;
+        try {
+            part = Files.createTempFile(tmp, "upload", ".part");
+            MessageDigest sha256 = sha256();
+            long size;
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE);
+                 InputStream in = new DigestInputStream(content, sha256)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                size = in.transferTo(out);
+                channel.force(true);
+            }
+            String hash = HEX.formatHex(sha256.digest());
+            Path target = pathOf(hash);
+            if(refresh(target)){
+                // stored already, dedup
+                Files.delete(part);
+            }
+            else{
+                Files.createDirectories(target.getParent());
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredBlob(hash, size);
+        }
+        catch(IOException e){
+            deleteQuietly(part);
+            throw new DocumentStoreException(null, e);
+        }
+        catch(RuntimeException e){
+            // the content stream gave up part way, an upload over the size limit say
+            deleteQuietly(part);
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) {
+        try {
+            return Files.newInputStream(pathOf(hash));
+        }
+        catch(IOException e){
+            throw new DocumentStoreException(hash, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return Files.exists(pathOf(hash));
+    }
+
+    @Override
+    public Optional<Path> localPath(String hash) {
+        Path path = pathOf(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * the blob is renamed out of the way before its time is checked. from then on an upload of the same content
+     * finds nothing to refresh and puts its own copy in place, and an upload which refreshed it just before the
+     * rename left a time the check sees, so the blob is put back.
+     */
+    @Override
+    public boolean deleteIfOlderThan(String hash, long cutoff) {
+        Path target = pathOf(hash);
+        Path collecting = tmp.resolve(hash + ".collect");
+        try {
+            Files.move(target, collecting, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(NoSuchFileException gone){
+            return false;
+        }
+        catch(IOException e){
+            throw new DocumentStoreException(hash, e);
+        }
+        try {
+            if(Files.getLastModifiedTime(collecting).toMillis() < cutoff){
+                Files.delete(collecting);
+                return true;
+            }
+            // same hash, same bytes, so it does not matter if an upload has put a copy back meanwhile
+            Files.move(collecting, target, StandardCopyOption.ATOMIC_MOVE);
+            return false;
+        }
+        catch(IOException e){
+            throw new DocumentStoreException(hash, e);
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<String> hashConsumer) {
+        try (Stream<Path> files = Files.walk(root, 3)) {
+            files.filter(path -> path.getNameCount() - root.getNameCount() == 3)
+                 .filter(Files::isRegularFile)
+                 .map(path -> path.getFileName().toString())
+                 .forEach(hashConsumer);
+        }
+        catch(IOException e){
+            throw new DocumentStoreException(null, e);
+        }
+    }
+
+    @Override
+    public boolean verify(String hash) {
+        MessageDigest sha256 = sha256();
+        try (InputStream in = new DigestInputStream(open(hash), sha256)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        catch(IOException e){
+            throw new DocumentStoreException(hash, e);
+        }
+        return HEX.formatHex(sha256.digest()).equals(hash);
+    }
+
+    @Override
+    public long createdTime(String hash) {
+        try {
+            return Files.getLastModifiedTime(pathOf(hash)).toMillis();
+        }
+        catch(IOException e){
+            throw new DocumentStoreException(hash, e);
+        }
+    }
+
+    Path pathOf(String hash) {
+        if(hash.length() != 64 || !hash.chars().allMatch(c -> Character.digit(c, 16) >= 0)){
+            // never let a hash from outside become a path
+            throw new DocumentStoreException(hash, new IllegalArgumentException("Not a SHA-256 hash"));
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * a blob which is stored again counts as new, so the garbage collector leaves it alone until the upload
+     * has had time to reference it. false if there is no such blob, or it was just collected.
+     */
+    private static boolean refresh(Path target) throws IOException {
+        try {
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        }
+        catch(NoSuchFileException notThere){
+            return false;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch(NoSuchAlgorithmException e){
+            // every JVM has to have it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if(path != null){
+            try {
+                Files.deleteIfExists(path);
+            }
+            catch(IOException ignored){
+            }
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.yieldstreet.document;
+
+/**
+ * what DocumentStore.put wrote, the hex SHA-256 of the content and its length in bytes
+ */
+public class StoredBlob {
+
+    private final String hash;
+    private final long size;
+
+    public StoredBlob(String hash, long size) {
+        this.hash = hash;
+        this.size = size;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.yieldstreet.document;
+
+/**
+ * document content which is in the store but not yet counted in document_blob, see DocumentContentService.storeUpload.
+ * the size is of the document, the blob may be smaller.
+ */
+public class StoredContent {
+
+    private final StoredBlob blob;
+    private final long size;
+
+    public StoredContent(StoredBlob blob, long size) {
+        this.blob = blob;
+        this.size = size;
+    }
+
+    public StoredBlob getBlob() {
+        return blob;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.yieldstreet.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * the outcome of one record of a bulk insert, written back as one line of NDJSON in the order of the input
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkInsertResultDTO {
+
+    public static final String CREATED = "created";
+    public static final String REJECTED = "rejected";
+
+    private long line;
+    private String userId;
+    private String accreditationId;
+    private String result;
+    private String error;
+
+    public static BulkInsertResultDTO created(String userId, String accreditationId) {
+        BulkInsertResultDTO dto = new BulkInsertResultDTO();
+        dto.setUserId(userId);
+        dto.setAccreditationId(accreditationId);
+        dto.setResult(CREATED);
+        return dto;
+    }
+
+    public static BulkInsertResultDTO rejected(String userId, String error) {
+        BulkInsertResultDTO dto = new BulkInsertResultDTO();
+        dto.setUserId(userId);
+        dto.setResult(REJECTED);
+        dto.setError(error);
+        return dto;
+    }
+
+    @JsonProperty("line")
+    public long getLine() {
+        return line;
+    }
+
+    @JsonProperty("line")
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    @JsonProperty("user_id")
+    public String getUserId() {
+        return userId;
+    }
+
+    @JsonProperty("user_id")
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    @JsonProperty("accreditation_id")
+    public String getAccreditationId() {
+        return accreditationId;
+    }
+
+    @JsonProperty("accreditation_id")
+    public void setAccreditationId(String accreditationId) {
+        this.accreditationId = accreditationId;
+    }
+
+    @JsonProperty("result")
+    public String getResult() {
+        return result;
+    }
+
+    @JsonProperty("result")
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    @JsonProperty("error")
+    public String getError() {
+        return error;
+    }
+
+    @JsonProperty("error")
+    public void setError(String error) {
+        this.error = error;
+    }
+
+}
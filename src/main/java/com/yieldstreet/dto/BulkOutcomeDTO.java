@@ -0,0 +1,33 @@
+package com.yieldstreet.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * one item of a bulk outcome, the accreditation and the outcome a single PUT would carry
+ */
+public class BulkOutcomeDTO {
+
+    private String accreditationId;
+    private String outcome;
+
+    @JsonProperty("accreditation_id")
+    public String getAccreditationId() {
+        return accreditationId;
+    }
+
+    @JsonProperty("accreditation_id")
+    public void setAccreditationId(String accreditationId) {
+        this.accreditationId = accreditationId;
+    }
+
+    @JsonProperty("outcome")
+    public String getOutcome() {
+        return outcome;
+    }
+
+    @JsonProperty("outcome")
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+}
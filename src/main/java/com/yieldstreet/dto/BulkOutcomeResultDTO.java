@@ -0,0 +1,78 @@
+package com.yieldstreet.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * the outcome of one item of a bulk outcome. status is the HTTP status the single PUT would have answered with,
+ * so 200 means the change was queued.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkOutcomeResultDTO {
+
+    public static final String ACCEPTED = "accepted";
+    public static final String REJECTED = "rejected";
+
+    private String accreditationId;
+    private String result;
+    private int status;
+    private String error;
+
+    public static BulkOutcomeResultDTO accepted(String accreditationId) {
+        BulkOutcomeResultDTO dto = new BulkOutcomeResultDTO();
+        dto.setAccreditationId(accreditationId);
+        dto.setResult(ACCEPTED);
+        dto.setStatus(200);
+        return dto;
+    }
+
+    public static BulkOutcomeResultDTO rejected(String accreditationId, int status, String error) {
+        BulkOutcomeResultDTO dto = new BulkOutcomeResultDTO();
+        dto.setAccreditationId(accreditationId);
+        dto.setResult(REJECTED);
+        dto.setStatus(status);
+        dto.setError(error);
+        return dto;
+    }
+
+    @JsonProperty("accreditation_id")
+    public String getAccreditationId() {
+        return accreditationId;
+    }
+
+    @JsonProperty("accreditation_id")
+    public void setAccreditationId(String accreditationId) {
+        this.accreditationId = accreditationId;
+    }
+
+    @JsonProperty("result")
+    public String getResult() {
+        return result;
+    }
+
+    @JsonProperty("result")
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    @JsonProperty("status")
+    public int getStatus() {
+        return status;
+    }
+
+    @JsonProperty("status")
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    @JsonProperty("error")
+    public String getError() {
+        return error;
+    }
+
+    @JsonProperty("error")
+    public void setError(String error) {
+        this.error = error;
+    }
+
+}
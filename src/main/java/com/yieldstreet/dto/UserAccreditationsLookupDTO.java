@@ -0,0 +1,35 @@
+package com.yieldstreet.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the accreditations of each user found, as the single user GET would return them, keyed by user id.
+ * users with no accreditations are listed in not_found rather than left out silently.
+ */
+public class UserAccreditationsLookupDTO {
+
+    private Map<String, UserAccreditationsDTO> users;
+    private List<String> notFound;
+
+    @JsonCreator()
+    public UserAccreditationsLookupDTO(@JsonProperty("users") Map<String, UserAccreditationsDTO> users,
+                                       @JsonProperty("not_found") List<String> notFound){
+        this.users = users;
+        this.notFound = notFound;
+    }
+
+    @JsonProperty("users")
+    public Map<String, UserAccreditationsDTO> getUsers() {
+        return users;
+    }
+
+    @JsonProperty("not_found")
+    public List<String> getNotFound() {
+        return notFound;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.yieldstreet.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * the users to look up in one batch
+ */
+public class UserLookupDTO {
+
+    private List<String> userIds;
+
+    @JsonProperty("user_ids")
+    public List<String> getUserIds() {
+        return userIds;
+    }
+
+    @JsonProperty("user_ids")
+    public void setUserIds(List<String> userIds) {
+        this.userIds = userIds;
+    }
+
+}
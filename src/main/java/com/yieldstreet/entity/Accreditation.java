@@ -1,12 +1,16 @@
 package com.yieldstreet.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 
+// the table and its indexes are created by the flyway migrations in db/migration
 @Entity
 public class Accreditation {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.UUID)
+    @TimeOrderedUuid
+    @Type(UuidBinaryType.class)
     private String accreditationId;
 
     private String userId;
@@ -22,12 +26,18 @@ public class Accreditation {
     @Column(name="status")
     private int statusCode;
 
-    @OneToOne
+    // lazy, so nothing which only needs the status pays for loading the document content
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "document_id")
     private Document document;
 
     private long lastUpdateTime;
 
+    // optimistic locking, hibernate adds "and version=?" to every update and bumps it. a stale update fails
+    // rather than overwriting a state change it has not seen (see accreditation-update-mode)
+    @Version
+    private long version;
+
     /**
      * these two methods are just so we can use enums on the pojos,
      * we store them as integers in the database .. Spring maps to and from
@@ -79,6 +89,8 @@ public class Accreditation {
         this.statusCode = status.getCode();
     }
 
+    // the document never travels with the accreditation on the queue, it may be an unloaded proxy here anyway
+    @JsonIgnore
     public Document getDocument() {
         return document;
     }
@@ -95,4 +107,12 @@ public class Accreditation {
         this.lastUpdateTime = lastUpdateTime;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
 }
@@ -2,14 +2,17 @@ package com.yieldstreet.entity;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 
 @Entity
 public class AccreditationHistory {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.UUID)
+    @TimeOrderedUuid
+    @Type(UuidBinaryType.class)
     private String accreditationHistoryId;
 
+    @Type(UuidBinaryType.class)
     private String accreditationId;
     private long lastUpdateTime;
 
@@ -1,19 +1,24 @@
 package com.yieldstreet.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import org.hibernate.annotations.Type;
 
 @Entity
 public class Document {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.UUID)
+    @TimeOrderedUuid
+    @Type(UuidBinaryType.class)
     private String id;
     private String name;
     private String mimeType; // TODO enum, use JDK MimeType class
-    private String content;
+
+    // the content itself is in the DocumentStore under this SHA-256, see DocumentContentService
+    @Column(columnDefinition = "char(64)")
+    private String contentHash;
+    private Long size;
 
     public String getId() {
         return id;
@@ -39,12 +44,20 @@ public class Document {
         this.mimeType = mimeType;
     }
 
-    public String getContent() {
-        return content;
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Long getSize() {
+        return size;
     }
 
-    public void setContent(String content) {
-        this.content = content;
+    public void setSize(Long size) {
+        this.size = size;
     }
 
 }
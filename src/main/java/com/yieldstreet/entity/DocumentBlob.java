@@ -0,0 +1,54 @@
+package com.yieldstreet.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * one row per blob in the DocumentStore, counting the documents which refer to it. documents are never deleted,
+ * so the count only goes up. a blob without a row is deleted by the integrity verifier.
+ */
+@Entity
+public class DocumentBlob {
+
+    @Id
+    @Column(columnDefinition = "char(64)")
+    private String hash;
+
+    private long size;
+    private int refCount;
+    private long createdTime;
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    public void setCreatedTime(long createdTime) {
+        this.createdTime = createdTime;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.yieldstreet.entity;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.UUID;
+
+/**
+ * generates the entity ids as UUID strings. by default they are version 7 UUIDs (RFC 9562), which start with the
+ * unix time in millis, so new rows are appended at the end of the InnoDB clustered index instead of splitting pages
+ * all over it the way random version 4 ids do. the rest is random, so they are no easier to guess than before.
+ * spring.jpa.properties.accreditation-id-strategy=random goes back to version 4. either way they are valid UUIDs
+ * and are stored as BINARY(16), see UuidBinaryType.
+ */
+public class TimeOrderedUuidGenerator implements BeforeExecutionGenerator {
+
+    public static final String STRATEGY_SETTING = "accreditation-id-strategy";
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final boolean timeOrdered;
+
+    public TimeOrderedUuidGenerator(TimeOrderedUuid config, Member member, CustomIdGeneratorCreationContext context) {
+        Object strategy = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSettings().get(STRATEGY_SETTING);
+        this.timeOrdered = strategy == null || !"random".equals(strategy.toString());
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return (timeOrdered ? timeOrdered(System.currentTimeMillis()) : UUID.randomUUID()).toString();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    /**
+     * 48 bits of millis, the version, 12 random bits, the variant and 62 more random bits
+     */
+    public static UUID timeOrdered(long millis) {
+        byte[] bytes = new byte[10];
+        random.nextBytes(bytes);
+        long randA = ((bytes[0] & 0xFFL) << 8 | (bytes[1] & 0xFFL)) & 0x0FFFL;
+        long randB = 0;
+        for(int i = 2; i < 10; i++){
+            randB = (randB << 8) | (bytes[i] & 0xFFL);
+        }
+        long msb = (millis << 16) | 0x7000L | randA;
+        long lsb = (randB & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+}
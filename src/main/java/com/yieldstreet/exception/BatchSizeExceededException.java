@@ -0,0 +1,16 @@
+package com.yieldstreet.exception;
+
+public class BatchSizeExceededException extends RuntimeException {
+
+    private int size;
+    private int maxSize;
+
+    public BatchSizeExceededException(int size, int maxSize){
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    public String getDescription(){
+        return "Batch of " + size + " is over the limit of " + maxSize;
+    }
+}
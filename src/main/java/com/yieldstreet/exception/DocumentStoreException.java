@@ -0,0 +1,15 @@
+package com.yieldstreet.exception;
+
+public class DocumentStoreException extends RuntimeException {
+
+    private String hash;
+
+    public DocumentStoreException(String hash, Throwable cause){
+        super(cause);
+        this.hash = hash;
+    }
+
+    public String getHash(){
+        return hash;
+    }
+}
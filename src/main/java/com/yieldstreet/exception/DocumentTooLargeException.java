@@ -0,0 +1,14 @@
+package com.yieldstreet.exception;
+
+public class DocumentTooLargeException extends RuntimeException {
+
+    private long maxBytes;
+
+    public DocumentTooLargeException(long maxBytes){
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes(){
+        return maxBytes;
+    }
+}
@@ -0,0 +1,21 @@
+package com.yieldstreet.exception;
+
+public class DocumentTypeMismatchException extends RuntimeException {
+
+    private String mimeType;
+
+    private String detectedType;
+
+    public DocumentTypeMismatchException(String mimeType, String detectedType){
+        this.mimeType = mimeType;
+        this.detectedType = detectedType;
+    }
+
+    public String getMimeType(){
+        return mimeType;
+    }
+
+    public String getDetectedType(){
+        return detectedType;
+    }
+}
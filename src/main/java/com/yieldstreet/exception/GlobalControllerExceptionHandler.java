@@ -30,6 +30,13 @@ class GlobalControllerExceptionHandler {
         return new ResponseEntity<>(ex.getId(), HttpStatus.BAD_REQUEST);
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException ex) {
+        logger.error("Invalid cursor: "+ ex.getCursor());
+        return new ResponseEntity<>(ex.getCursor(), HttpStatus.BAD_REQUEST);
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(InvalidMimeTypeException.class)
     public ResponseEntity<String> handleInvalidMimeTypeException(InvalidMimeTypeException ex) {
@@ -58,4 +65,39 @@ class GlobalControllerExceptionHandler {
         return new ResponseEntity<>(ex.getAccreditationId(), HttpStatus.METHOD_NOT_ALLOWED);
     }
 
-}
\ No newline at end of file
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    @ExceptionHandler(BatchSizeExceededException.class)
+    public ResponseEntity<String> handleBatchSizeExceededException(BatchSizeExceededException ex) {
+        logger.error(ex.getDescription());
+        return new ResponseEntity<>(ex.getDescription(), HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    @ExceptionHandler(DocumentTooLargeException.class)
+    public ResponseEntity<String> handleDocumentTooLargeException(DocumentTooLargeException ex) {
+        logger.error("Document larger than the limit of " + ex.getMaxBytes() + " bytes");
+        return new ResponseEntity<>("Document is larger than " + ex.getMaxBytes() + " bytes", HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidDocumentContentException.class)
+    public ResponseEntity<String> handleInvalidDocumentContentException(InvalidDocumentContentException ex) {
+        logger.error("Invalid document content: "+ ex.getReason());
+        return new ResponseEntity<>(ex.getReason(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ResponseStatus(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+    @ExceptionHandler(DocumentTypeMismatchException.class)
+    public ResponseEntity<String> handleDocumentTypeMismatchException(DocumentTypeMismatchException ex) {
+        logger.error("Document declared as " + ex.getMimeType() + " looks like " + ex.getDetectedType());
+        return new ResponseEntity<>(ex.getMimeType(), HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    @ExceptionHandler(DocumentStoreException.class)
+    public ResponseEntity<String> handleDocumentStoreException(DocumentStoreException ex) {
+        logger.error("Document store failure for blob: "+ ex.getHash(), ex.getCause());
+        return new ResponseEntity<>("Document could not be stored or read", HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.yieldstreet.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    private String cursor;
+
+    public InvalidCursorException(String cursor){
+        this.cursor = cursor;
+    }
+
+    public String getCursor(){
+        return cursor;
+    }
+}
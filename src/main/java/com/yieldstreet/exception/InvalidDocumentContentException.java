@@ -0,0 +1,14 @@
+package com.yieldstreet.exception;
+
+public class InvalidDocumentContentException extends RuntimeException {
+
+    private String reason;
+
+    public InvalidDocumentContentException(String reason){
+        this.reason = reason;
+    }
+
+    public String getReason(){
+        return reason;
+    }
+}
@@ -8,6 +8,13 @@ public class InvalidInitialStateException extends RuntimeException {
         this.id = existingAccreditationId;
     }
 
+    /**
+     * when the pending accreditation was inserted by a concurrent request, so we only know whose it is
+     */
+    public static InvalidInitialStateException forUser(String userId){
+        return new InvalidInitialStateException("of user " + userId);
+    }
+
     public String getAccreditationId(){
         return "Attempt to initiate a pending transaction when user already has one: " + id;
     }
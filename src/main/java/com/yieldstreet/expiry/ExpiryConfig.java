@@ -0,0 +1,47 @@
+package com.yieldstreet.expiry;
+
+import org.quartz.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * this @Configuration class registers the expiry sweeper with quartz, SpringBOOT schedules any JobDetail
+ * and Trigger beans it finds. see application.properties for the sweep interval and page size.
+ * it is only active when the quartz expiry engine is selected, which is the default.
+ */
+@Configuration
+@ConditionalOnProperty(name = ExpiryEngine.ENGINE_PROPERTY, havingValue = "quartz", matchIfMissing = true)
+public class ExpiryConfig {
+
+    @Value("${accreditation-expiry-sweep-interval-millis:60000}")
+    private long sweepIntervalMillis;
+
+    @Bean
+    ExpiryEngine quartzExpiryEngine() {
+        return new QuartzExpiryEngine();
+    }
+
+    @Bean
+    JobDetail expirySweepJobDetail() {
+        return JobBuilder.newJob(ExpirySweepJob.class)
+                .withIdentity("accreditationExpirySweep")
+                .withDescription("Expire inactive confirmed accreditations")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    Trigger expirySweepTrigger(JobDetail expirySweepJobDetail) {
+        return TriggerBuilder.newTrigger()
+                .withIdentity("accreditationExpirySweep")
+                .forJob(expirySweepJobDetail)
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                        .withIntervalInMilliseconds(sweepIntervalMillis)
+                        .repeatForever()
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .build();
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.yieldstreet.expiry;
+
+/**
+ * the receiver tells the expiry engine about confirmed accreditations, the engine is responsible for sending
+ * the EXPIRED state change once an accreditation has been inactive for longer than the expiry delay.
+ * which engine is used is selected by the accreditation-expiry-engine property:
+ *   quartz - the default, a periodic sweeper which finds expired accreditations in the database itself
+ *   wheel  - an in-process timing wheel holding the deadline of every confirmed accreditation
+ */
+public interface ExpiryEngine {
+
+    String ENGINE_PROPERTY = "accreditation-expiry-engine";
+
+    /**
+     * called once an accreditation is CONFIRMED, or when its lastUpdateTime is touched while it is CONFIRMED.
+     * scheduling an accreditation which is already known replaces its deadline.
+     * @param accreditationId
+     * @param lastUpdateTime
+     */
+    void schedule(String accreditationId, long lastUpdateTime);
+
+    /**
+     * called once an accreditation leaves CONFIRMED by some other route, e.g. it FAILED
+     * @param accreditationId
+     */
+    void cancel(String accreditationId);
+
+}
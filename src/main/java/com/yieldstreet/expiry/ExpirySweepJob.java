@@ -0,0 +1,24 @@
+package com.yieldstreet.expiry;
+
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * the one and only expiry job, Spring autowires it when quartz instantiates it for each firing.
+ * concurrent execution is disallowed so a slow sweep is never overlapped by the next one.
+ */
+@DisallowConcurrentExecution
+public class ExpirySweepJob extends QuartzJobBean {
+
+    @Autowired
+    private ExpirySweeper expirySweeper;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        expirySweeper.sweep();
+    }
+
+}
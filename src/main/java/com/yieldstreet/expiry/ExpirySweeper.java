@@ -0,0 +1,133 @@
+package com.yieldstreet.expiry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yieldstreet.entity.AccreditationStatus;
+import com.yieldstreet.entity.UuidBinaryType;
+import com.yieldstreet.rabbit.AccreditationStateChangeEvent;
+import com.yieldstreet.rabbit.RabbitMQSender;
+import com.yieldstreet.repository.AccreditationActivityView;
+import com.yieldstreet.repository.AccreditationRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a single sweeper replaces the one-quartz-trigger-per-confirmed-accreditation approach. every sweep walks the
+ * CONFIRMED accreditations that have been inactive for longer than the expiry delay, a page at a time, and pushes
+ * the EXPIRED state change for each page onto the queue in one go. the receiver still owns the state machine,
+ * so if an accreditation moved on while its expiry event was in flight the event is simply ignored there.
+ * an accreditation stays CONFIRMED until the receiver gets to its event, so the next sweep would find it again. the
+ * ids sent are remembered for accreditation-expiry-resend-millis and skipped until then, and quartz is clustered
+ * (see application.properties) so only one instance sweeps at a time. if the event really was lost it is sent
+ * again once the window has passed.
+ */
+@Service
+public class ExpirySweeper {
+    private static Logger logger = LoggerFactory.getLogger(ExpirySweeper.class);
+
+    @Value("${accreditation-expiry-delay-millis}")
+    private long millisToExpiry;
+
+    @Value("${accreditation-expiry-sweep-page-size:500}")
+    private int pageSize;
+
+    @Value("${accreditation-expiry-resend-millis:600000}")
+    private long resendMillis;
+
+    @Value("${accreditation-expiry-resend-max-size:1000000}")
+    private long resendMaxSize;
+
+    @Autowired
+    private AccreditationRepository accreditationRepository;
+
+    @Autowired
+    private RabbitMQSender rabbitMQSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private DistributionSummary scannedPerSweep;
+    private DistributionSummary expiredPerSweep;
+    private Timer sweepTimer;
+
+    // accreditations whose expiry event went out recently, value unused
+    private Cache<String, Boolean> recentlySent;
+
+    @PostConstruct
+    void registerMetrics(){
+        recentlySent = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(resendMillis))
+                .maximumSize(resendMaxSize)
+                .build();
+        scannedPerSweep = DistributionSummary.builder("accreditation.expiry.sweep.scanned")
+                .description("Confirmed accreditations read by one expiry sweep")
+                .register(meterRegistry);
+        expiredPerSweep = DistributionSummary.builder("accreditation.expiry.sweep.expired")
+                .description("Expiry state change events sent by one expiry sweep")
+                .register(meterRegistry);
+        sweepTimer = Timer.builder("accreditation.expiry.sweep")
+                .description("Time taken by one expiry sweep")
+                .register(meterRegistry);
+    }
+
+    /**
+     * one sweep, called on the quartz thread. quartz will not run two sweeps at once (see ExpirySweepJob).
+     */
+    public void sweep(){
+        sweepTimer.record(this::doSweep);
+    }
+
+    private void doSweep(){
+        long cutoff = System.currentTimeMillis() - millisToExpiry;
+        long afterTime = Long.MIN_VALUE;
+        String afterId = UuidBinaryType.MIN_ID;
+        int scanned = 0;
+        int expired = 0;
+        List<AccreditationActivityView> page;
+        do {
+            page = accreditationRepository.findInactiveSince(AccreditationStatus.CONFIRMED.getCode(),
+                    cutoff, afterTime, afterId, Limit.of(pageSize));
+            if(page.isEmpty()){
+                break;
+            }
+            scanned += page.size();
+            List<AccreditationStateChangeEvent> events = new ArrayList<>(page.size());
+            for(AccreditationActivityView acc : page){
+                if(recentlySent.getIfPresent(acc.getAccreditationId()) != null){
+                    continue;
+                }
+                events.add(new AccreditationStateChangeEvent(acc.getAccreditationId(),
+                        AccreditationStatus.EXPIRED, AccreditationStateChangeEvent.Source.EXPIRY));
+            }
+            if(!events.isEmpty()){
+                rabbitMQSender.sendAll(events);
+                // only once the broker has them, a failed send is retried on the next sweep
+                for(AccreditationStateChangeEvent event : events){
+                    recentlySent.put(event.getAccreditationId(), Boolean.TRUE);
+                }
+                expired += events.size();
+            }
+            AccreditationActivityView last = page.get(page.size() - 1);
+            afterTime = last.getLastUpdateTime();
+            afterId = last.getAccreditationId();
+        } while(page.size() == pageSize);
+        scannedPerSweep.record(scanned);
+        expiredPerSweep.record(expired);
+        if(expired > 0){
+            logger.debug("Expiry sweep queued expiration state change events for " + expired + " accreditations");
+        }
+    }
+
+}
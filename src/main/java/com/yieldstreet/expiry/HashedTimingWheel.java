@@ -0,0 +1,191 @@
+package com.yieldstreet.expiry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * a hashed timing wheel of deadlines keyed by accreditation id. schedule, reschedule and cancel are O(1),
+ * advancing the wheel costs one bucket per tick. deadlines further out than one revolution of the wheel
+ * carry a count of the remaining rounds, so a 30 day expiry does not need a 30 day wheel.
+ *
+ * a deadline is never reported early, it is reported by the first advance() whose time is at or past the end
+ * of the tick it falls in. this class is thread safe, all access goes through the one lock. it is a ReentrantLock
+ * rather than the object monitor so that a virtual thread waiting for it does not pin its carrier thread.
+ */
+public class HashedTimingWheel {
+
+    private final long tickMillis;
+    private final long startTime;
+    private final int mask;
+    private final Bucket[] buckets;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long currentTick;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param tickMillis the resolution of the wheel
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     * @param startTime the time of tick zero
+     */
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startTime){
+        if(tickMillis <= 0 || wheelSize <= 0){
+            throw new IllegalArgumentException("Tick and wheel size must be positive: " + tickMillis + ", " + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if(size < wheelSize){
+            size <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.startTime = startTime;
+        this.mask = size - 1;
+        this.buckets = new Bucket[size];
+        for(int i = 0; i < size; i++){
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * schedule a deadline for the key, replacing any deadline it already had
+     * @param key
+     * @param deadline
+     */
+    public void schedule(String key, long deadline){
+        lock.lock();
+        try{
+            Entry existing = entries.remove(key);
+            if(existing != null){
+                existing.bucket.unlink(existing);
+            }
+            // a deadline in the past goes into the current tick and is reported by the next advance
+            long tick = Math.max((deadline - startTime) / tickMillis, currentTick);
+            Entry entry = new Entry(key, (tick - currentTick) / buckets.length);
+            buckets[(int)(tick & mask)].link(entry);
+            entries.put(key, entry);
+        }
+        finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key
+     * @return true if the key had a deadline which is now gone
+     */
+    public boolean cancel(String key){
+        lock.lock();
+        try{
+            Entry existing = entries.remove(key);
+            if(existing == null){
+                return false;
+            }
+            existing.bucket.unlink(existing);
+            return true;
+        }
+        finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * move the wheel forward to the given time, removing and returning every key whose deadline has passed
+     * @param now
+     * @return the due keys, oldest tick first
+     */
+    public List<String> advance(long now){
+        lock.lock();
+        try{
+            List<String> due = new ArrayList<>();
+            while(startTime + (currentTick + 1) * tickMillis <= now){
+                Bucket bucket = buckets[(int)(currentTick & mask)];
+                Entry entry = bucket.head;
+                while(entry != null){
+                    Entry next = entry.next;
+                    if(entry.remainingRounds <= 0){
+                        bucket.unlink(entry);
+                        entries.remove(entry.key);
+                        due.add(entry.key);
+                    }
+                    else{
+                        entry.remainingRounds--;
+                    }
+                    entry = next;
+                }
+                currentTick++;
+            }
+            return due;
+        }
+        finally{
+            lock.unlock();
+        }
+    }
+
+    public int size(){
+        lock.lock();
+        try{
+            return entries.size();
+        }
+        finally{
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(String key){
+        lock.lock();
+        try{
+            return entries.containsKey(key);
+        }
+        finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * helpers follow, a bucket is an intrusive doubly linked list so an entry can be unlinked without a search
+     */
+
+    private static class Entry {
+        private final String key;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Entry prev;
+        private Entry next;
+
+        Entry(String key, long remainingRounds){
+            this.key = key;
+            this.remainingRounds = remainingRounds;
+        }
+    }
+
+    private static class Bucket {
+        private Entry head;
+
+        void link(Entry entry){
+            entry.bucket = this;
+            entry.prev = null;
+            entry.next = head;
+            if(head != null){
+                head.prev = entry;
+            }
+            head = entry;
+        }
+
+        void unlink(Entry entry){
+            if(entry.prev != null){
+                entry.prev.next = entry.next;
+            }
+            else{
+                head = entry.next;
+            }
+            if(entry.next != null){
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.yieldstreet.expiry;
+
+/**
+ * the quartz engine keeps no state of its own, the ExpirySweeper finds inactive confirmed accreditations
+ * straight from the accreditation table each time it runs. so there is nothing to do when the receiver
+ * confirms or fails an accreditation.
+ */
+public class QuartzExpiryEngine implements ExpiryEngine {
+
+    @Override
+    public void schedule(String accreditationId, long lastUpdateTime) {
+    }
+
+    @Override
+    public void cancel(String accreditationId) {
+    }
+
+}
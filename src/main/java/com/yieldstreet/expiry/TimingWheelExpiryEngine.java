@@ -0,0 +1,234 @@
+package com.yieldstreet.expiry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yieldstreet.entity.Accreditation;
+import com.yieldstreet.entity.AccreditationStatus;
+import com.yieldstreet.entity.UuidBinaryType;
+import com.yieldstreet.rabbit.AccreditationPartitioner;
+import com.yieldstreet.rabbit.AccreditationStateChangeEvent;
+import com.yieldstreet.rabbit.RabbitMQSender;
+import com.yieldstreet.repository.AccreditationActivityView;
+import com.yieldstreet.repository.AccreditationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * in-process expiry engine, the deadline of every confirmed accreditation is held in a HashedTimingWheel.
+ * the wheel is rebuilt from the accreditation table on startup, after that the receiver keeps it up to date.
+ * a single background thread ticks the wheel and hands the due accreditations to the sender in batches,
+ * the expiry still goes via the queue so the receiver stays the only thing changing accreditation state.
+ *
+ * with several instances each one only holds the accreditations in its own partitions (accreditation-partition-listeners),
+ * the same ones its receiver confirms and fails, so accreditation-partition-listeners must not overlap between instances
+ * running the wheel or both would expire the same accreditations. a deadline held by an instance which dies is not lost
+ * for good, every accreditation-expiry-wheel-resync-millis the wheel is reloaded from the table, which also picks up
+ * the partitions an instance has been given since it started. anything sent in the last accreditation-expiry-resend-millis
+ * is left out of the reload, it is still CONFIRMED only because its event has not been handled yet.
+ */
+@Service
+@ConditionalOnProperty(name = ExpiryEngine.ENGINE_PROPERTY, havingValue = "wheel")
+public class TimingWheelExpiryEngine implements ExpiryEngine {
+    private static Logger logger = LoggerFactory.getLogger(TimingWheelExpiryEngine.class);
+    // if the due batch could not be sent, try it again after this long rather than on every tick
+    private static final long RETRY_DELAY_MILLIS = 60000;
+
+    @Value("${accreditation-expiry-delay-millis}")
+    private long millisToExpiry;
+
+    @Value("${accreditation-expiry-wheel-tick-millis:1000}")
+    private long tickMillis;
+
+    @Value("${accreditation-expiry-wheel-size:4096}")
+    private int wheelSize;
+
+    @Value("${accreditation-expiry-wheel-batch-size:500}")
+    private int batchSize;
+
+    @Value("${accreditation-expiry-wheel-resync-millis:600000}")
+    private long resyncMillis;
+
+    @Value("${accreditation-expiry-resend-millis:600000}")
+    private long resendMillis;
+
+    @Value("${accreditation-expiry-resend-max-size:1000000}")
+    private long resendMaxSize;
+
+    @Autowired
+    private AccreditationRepository accreditationRepository;
+
+    @Autowired
+    private RabbitMQSender rabbitMQSender;
+
+    @Autowired
+    private AccreditationPartitioner partitioner;
+
+    @Autowired
+    private Environment environment;
+
+    private HashedTimingWheel wheel;
+    private ScheduledExecutorService ticker;
+    private Set<Integer> localPartitions;
+    // accreditations whose expiry event went out recently, value unused
+    private Cache<String, Boolean> recentlySent;
+
+    @PostConstruct
+    void init() {
+        wheel = new HashedTimingWheel(tickMillis, wheelSize, System.currentTimeMillis());
+        localPartitions = new HashSet<>(partitioner.localPartitions());
+        recentlySent = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(resendMillis))
+                .maximumSize(resendMaxSize)
+                .build();
+    }
+
+    @Override
+    public void schedule(String accreditationId, long lastUpdateTime) {
+        if(isLocal(accreditationId)){
+            wheel.schedule(accreditationId, lastUpdateTime + millisToExpiry);
+        }
+    }
+
+    @Override
+    public void cancel(String accreditationId) {
+        wheel.cancel(accreditationId);
+    }
+
+    /**
+     * rebuild the wheel from the CONFIRMED accreditations once the application is up, then start ticking.
+     * anything the receiver schedules while we rebuild just replaces what we loaded for the same id.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        load();
+        logger.debug("Expiry timing wheel rebuilt with " + wheel.size() + " confirmed accreditations");
+        // the tick blocks on the database and the broker, with spring.threads.virtual.enabled it runs on a virtual thread
+        ThreadFactory threads = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("accreditation-expiry-wheel-").getVirtualThreadFactory()
+                : r -> {
+                    Thread t = new Thread(r, "accreditation-expiry-wheel");
+                    t.setDaemon(true);
+                    return t;
+                };
+        ticker = Executors.newSingleThreadScheduledExecutor(threads);
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(this::resync, resyncMillis, resyncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * schedule every CONFIRMED accreditation in the local partitions, except those sent recently. the ids are
+     * hashed here rather than in the query, every instance reads the CONFIRMED rows a page at a time and keeps its own.
+     */
+    void load() {
+        long afterTime = Long.MIN_VALUE;
+        String afterId = UuidBinaryType.MIN_ID;
+        List<AccreditationActivityView> page;
+        do {
+            page = accreditationRepository.findInactiveSince(AccreditationStatus.CONFIRMED.getCode(),
+                    Long.MAX_VALUE, afterTime, afterId, Limit.of(batchSize));
+            for(AccreditationActivityView acc : page){
+                if(recentlySent.getIfPresent(acc.getAccreditationId()) == null){
+                    schedule(acc.getAccreditationId(), acc.getLastUpdateTime());
+                }
+            }
+            if(!page.isEmpty()){
+                AccreditationActivityView last = page.get(page.size() - 1);
+                afterTime = last.getLastUpdateTime();
+                afterId = last.getAccreditationId();
+            }
+        } while(page.size() == batchSize);
+    }
+
+    /**
+     * runs on the ticker thread between ticks, like tick() it must not let an exception out
+     */
+    void resync() {
+        try{
+            load();
+            logger.debug("Expiry timing wheel resynced, it holds " + wheel.size() + " confirmed accreditations");
+        }
+        catch(Exception e){
+            logger.error("Expiry timing wheel resync failed", e);
+        }
+    }
+
+    private boolean isLocal(String accreditationId) {
+        return localPartitions.contains(partitioner.partitionOf(accreditationId));
+    }
+
+    @PreDestroy
+    void stop() {
+        if(ticker != null){
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * runs on the ticker thread, an exception escaping from here would stop the ticker so we catch everything
+     */
+    void tick() {
+        try{
+            List<String> due = wheel.advance(System.currentTimeMillis());
+            for(int from = 0; from < due.size(); from += batchSize){
+                expire(due.subList(from, Math.min(from + batchSize, due.size())));
+            }
+        }
+        catch(Exception e){
+            logger.error("Expiry timing wheel tick failed", e);
+        }
+    }
+
+    private void expire(List<String> ids) {
+        long now = System.currentTimeMillis();
+        try{
+            List<AccreditationStateChangeEvent> batch = new ArrayList<>();
+            for(Accreditation acc : accreditationRepository.findAllById(ids)){
+                if(acc.getStatus() != AccreditationStatus.CONFIRMED){
+                    continue;
+                }
+                if((now - acc.getLastUpdateTime()) > millisToExpiry){
+                    batch.add(new AccreditationStateChangeEvent(acc.getAccreditationId(),
+                            AccreditationStatus.EXPIRED, AccreditationStateChangeEvent.Source.EXPIRY));
+                }
+                else{
+                    // touched since it was scheduled and we missed it, put it back with the right deadline
+                    schedule(acc.getAccreditationId(), acc.getLastUpdateTime());
+                }
+            }
+            rabbitMQSender.sendAll(batch);
+            for(AccreditationStateChangeEvent event : batch){
+                recentlySent.put(event.getAccreditationId(), Boolean.TRUE);
+            }
+            logger.debug("Expiry timing wheel queued expiration state change events for " + batch.size() + " accreditations");
+        }
+        catch(Exception e){
+            logger.error("Could not expire " + ids.size() + " accreditations, will retry them later", e);
+            for(String id : ids){
+                wheel.schedule(id, now + RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.yieldstreet.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * the export from the command line, for the nightly compliance job. start the app with
+ * --accreditation-export-file=/path/accreditations.jsonl.gz (and --accreditation-export-format=csv for CSV) and it
+ * writes the export there and exits. the file is written under a temporary name and renamed when it is complete,
+ * so a half written export is never picked up. gzip is used when the file name ends in .gz
+ *
+ * the process only exports, see ExportModeEnvironmentPostProcessor for what is switched off. it exits with 0 once the
+ * file is in place and 1 if the export failed, with the error logged.
+ */
+@Component
+@ConditionalOnProperty(name = "accreditation-export-file")
+public class AccreditationExportRunner implements ApplicationRunner {
+    private static Logger logger = LoggerFactory.getLogger(AccreditationExportRunner.class);
+
+    @Value("${accreditation-export-file}")
+    private Path file;
+
+    @Value("${accreditation-export-format:jsonl}")
+    private String format;
+
+    @Autowired
+    private AccreditationExporter exporter;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        int exitCode = 1;
+        try{
+            try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), 64 * 1024)){
+                exporter.export(out, AccreditationExporter.Format.valueOf(format.toUpperCase()),
+                        file.getFileName().toString().endsWith(".gz"));
+            }
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Accreditation export written to " + file);
+            exitCode = 0;
+        }
+        catch(Exception e){
+            // logged here, the exit below means it would never reach Spring's own failure reporting
+            logger.error("Accreditation export to " + file + " failed", e);
+        }
+        try{
+            Files.deleteIfExists(part);
+        }
+        catch(IOException e){
+            logger.error("Could not remove the partial export " + part, e);
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+}
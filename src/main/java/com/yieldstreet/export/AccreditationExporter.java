@@ -0,0 +1,168 @@
+package com.yieldstreet.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.yieldstreet.entity.AccreditationStatus;
+import com.yieldstreet.entity.AccreditationType;
+import com.yieldstreet.entity.UuidBinaryType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * writes every accreditation and then every history entry, for compliance reporting, as JSON Lines or CSV.
+ *
+ * both tables are read in one REPEATABLE READ, read only transaction, so InnoDB answers both from the one snapshot
+ * and the export is consistent however long it takes while the app carries on writing. the rows are streamed
+ * (a forward only result set with fetch size Integer.MIN_VALUE, which is how MySQL is told not to buffer the whole
+ * result) and written out one at a time through the Jackson generator, so memory use does not grow with the tables.
+ *
+ * the scans are in primary key order, and InnoDB puts pages read by a scan into the old end of the buffer pool
+ * (innodb_old_blocks_time) so they do not push out the pages the live traffic uses. accreditation-export-rows-per-second
+ * can slow the export down further if it still competes with production for IO, at the cost of holding the
+ * snapshot open for longer.
+ */
+@Component
+public class AccreditationExporter {
+    private static Logger logger = LoggerFactory.getLogger(AccreditationExporter.class);
+
+    public enum Format { JSONL, CSV }
+
+    private static final String ACCREDITATIONS = "select accreditation_id, user_id, type, status, last_update_time " +
+            "from accreditation order by accreditation_id";
+    private static final String HISTORIES = "select accreditation_history_id, accreditation_id, old_status, last_update_time " +
+            "from accreditation_history order by accreditation_history_id";
+
+    // 0 for no limit
+    @Value("${accreditation-export-rows-per-second:0}")
+    private long rowsPerSecond;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    /**
+     * @param out not closed here
+     * @param format
+     * @param gzip
+     * @return the number of rows written
+     */
+    public long export(OutputStream out, Format format, boolean gzip) throws IOException {
+        long start = System.currentTimeMillis();
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, 64 * 1024) : null;
+        OutputStream target = gzip ? compressed : out;
+        long[] rows = new long[1];
+        try(SequenceWriter writer = writerFor(format, target)){
+            JdbcTemplate streaming = new JdbcTemplate(dataSource);
+            streaming.setFetchSize(Integer.MIN_VALUE);
+            TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+            snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            snapshot.setReadOnly(true);
+            snapshot.executeWithoutResult(status -> {
+                streaming.query(ACCREDITATIONS, (RowCallbackHandler) rs -> write(writer, accreditation(rs), ++rows[0], start));
+                streaming.query(HISTORIES, (RowCallbackHandler) rs -> write(writer, history(rs), ++rows[0], start));
+            });
+        }
+        catch(UncheckedIOException e){
+            throw e.getCause();
+        }
+        if(format == Format.JSONL && rows[0] > 0){
+            // the separator only goes between rows, JSON Lines ends each one
+            target.write('\n');
+        }
+        if(gzip){
+            compressed.finish();
+        }
+        out.flush();
+        logger.info("Exported " + rows[0] + " rows as " + format + " in " + (System.currentTimeMillis() - start) + "ms");
+        return rows[0];
+    }
+
+    private SequenceWriter writerFor(Format format, OutputStream out) throws IOException {
+        // the writers must not close the stream, that belongs to the caller
+        if(format == Format.CSV){
+            return csvMapper.writer(csvMapper.schemaFor(ExportRow.class).withHeader())
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValues(out);
+        }
+        return objectMapper.writerFor(ExportRow.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValues(out);
+    }
+
+    private void write(SequenceWriter writer, ExportRow row, long count, long start) {
+        try{
+            writer.write(row);
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        if(rowsPerSecond > 0 && count % rowsPerSecond == 0){
+            throttle(count, start);
+        }
+    }
+
+    private void throttle(long count, long start) {
+        long ahead = count * 1000 / rowsPerSecond - (System.currentTimeMillis() - start);
+        if(ahead > 0){
+            try{
+                Thread.sleep(ahead);
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Export interrupted", e);
+            }
+        }
+    }
+
+    private static ExportRow accreditation(ResultSet rs) throws SQLException {
+        ExportRow row = new ExportRow();
+        row.record = ExportRow.ACCREDITATION;
+        row.accreditationId = uuid(rs.getBytes("accreditation_id"));
+        row.userId = rs.getString("user_id");
+        row.type = AccreditationType.valueOf(rs.getInt("type")).name();
+        row.status = AccreditationStatus.valueOf(rs.getInt("status")).name();
+        row.lastUpdateTime = rs.getLong("last_update_time");
+        return row;
+    }
+
+    private static ExportRow history(ResultSet rs) throws SQLException {
+        ExportRow row = new ExportRow();
+        row.record = ExportRow.HISTORY;
+        row.accreditationHistoryId = uuid(rs.getBytes("accreditation_history_id"));
+        row.accreditationId = uuid(rs.getBytes("accreditation_id"));
+        row.status = AccreditationStatus.valueOf(rs.getInt("old_status")).name();
+        row.lastUpdateTime = rs.getLong("last_update_time");
+        return row;
+    }
+
+    private static String uuid(byte[] id) {
+        return id == null ? null : UuidBinaryType.toString(id);
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.yieldstreet.export;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * when the app is started to write the export (accreditation-export-file is set, see AccreditationExportRunner) it
+ * must not also join the running service: no web server, no rabbit listeners taking live state change events off
+ * the partitions, no quartz jobs, no expiry wheel and no schema migration. this runs after application.properties
+ * is loaded and puts those settings in front of everything else. registered in META-INF/spring.factories.
+ */
+public class ExportModeEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String PROPERTY_SOURCE = "accreditationExportMode";
+
+    private static final Map<String, Object> EXPORT_MODE = Map.of(
+            "spring.main.web-application-type", "none",
+            "spring.rabbitmq.listener.simple.auto-startup", "false",
+            "spring.rabbitmq.listener.direct.auto-startup", "false",
+            "spring.quartz.auto-startup", "false",
+            // keeps the export off the shared clustered job store, there is nothing for it to write there
+            "spring.quartz.job-store-type", "memory",
+            "spring.flyway.enabled", "false",
+            // the quartz engine has no state of its own, and quartz is not started
+            "accreditation-expiry-engine", "quartz",
+            "accreditation-document-migrate", "false");
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if(environment.containsProperty("accreditation-export-file")){
+            environment.getPropertySources().addFirst(new MapPropertySource(PROPERTY_SOURCE, EXPORT_MODE));
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.yieldstreet.export;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * one line of the export, an accreditation or one of its history entries. they share a shape so that the CSV
+ * has one header, the columns which do not apply to a record are left empty (and left out of the JSON).
+ */
+@JsonPropertyOrder({"record", "accreditation_id", "accreditation_history_id", "user_id", "accreditation_type",
+        "status", "last_update_time"})
+@JsonInclude(JsonInclude.Include.NON_NULL)
+class ExportRow {
+
+    static final String ACCREDITATION = "accreditation";
+    static final String HISTORY = "history";
+
+    @JsonProperty("record")
+    String record;
+
+    @JsonProperty("accreditation_id")
+    String accreditationId;
+
+    @JsonProperty("accreditation_history_id")
+    String accreditationHistoryId;
+
+    @JsonProperty("user_id")
+    String userId;
+
+    @JsonProperty("accreditation_type")
+    String type;
+
+    // the status the accreditation is in, or for history the status it moved out of
+    @JsonProperty("status")
+    String status;
+
+    @JsonProperty("last_update_time")
+    long lastUpdateTime;
+
+}
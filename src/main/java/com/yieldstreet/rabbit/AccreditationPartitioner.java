@@ -0,0 +1,80 @@
+package com.yieldstreet.rabbit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * state change events are spread over accreditation-partition-count queues by a hash of the accreditation id.
+ * every event for one accreditation lands on the same partition queue, and each partition queue has exactly one
+ * active consumer, so the events for an accreditation are still handled one at a time and in order while
+ * different accreditations are handled in parallel.
+ *
+ * accreditation-partition-listeners lists which partitions this node consumes, blank means all of them. each
+ * one costs a listener container with its own consumer thread, so this is how the concurrency of a node is set.
+ */
+@Component
+public class AccreditationPartitioner {
+
+    @Value("${accreditation-queue}")
+    private String queueName;
+
+    @Value("${accreditation-routingkey}")
+    private String routingkey;
+
+    @Value("${accreditation-partition-count:4}")
+    private int partitionCount;
+
+    @Value("${accreditation-partition-listeners:}")
+    private String partitionListeners;
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * a hash of the string, so the id must be in canonical UUID form, see AccreditationService.validateUUID
+     * @param accreditationId
+     * @return
+     */
+    public int partitionOf(String accreditationId) {
+        return Math.floorMod(accreditationId.hashCode(), partitionCount);
+    }
+
+    public String queueName(int partition) {
+        return queueName + "." + partition;
+    }
+
+    public String routingKey(int partition) {
+        return routingkey + "." + partition;
+    }
+
+    public String routingKeyFor(String accreditationId) {
+        return routingKey(partitionOf(accreditationId));
+    }
+
+    /**
+     * @return the partitions this node should run a listener for
+     */
+    public List<Integer> localPartitions() {
+        List<Integer> partitions = new ArrayList<>();
+        if(!StringUtils.hasText(partitionListeners)){
+            for(int i = 0; i < partitionCount; i++){
+                partitions.add(i);
+            }
+            return partitions;
+        }
+        for(String partition : StringUtils.commaDelimitedListToStringArray(partitionListeners)){
+            int i = Integer.parseInt(partition.trim());
+            if(i < 0 || i >= partitionCount){
+                throw new IllegalStateException("Partition " + i + " in accreditation-partition-listeners is not in 0.." + (partitionCount - 1));
+            }
+            partitions.add(i);
+        }
+        return partitions;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.yieldstreet.rabbit;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.yieldstreet.entity.Accreditation;
+import com.yieldstreet.entity.AccreditationStatus;
+
+/**
+ * the message we put on the queue to change the state of an accreditation. it only carries what the
+ * receiver needs, the receiver loads everything else from the database itself.
+ * the version is bumped whenever the layout of the event changes, so a receiver can tell what it was sent.
+ */
+public class AccreditationStateChangeEvent {
+
+    public static final int CURRENT_VERSION = 1;
+
+    /**
+     * who asked for the state change
+     */
+    public enum Source {
+        API, EXPIRY
+    }
+
+    private int version = CURRENT_VERSION;
+    private String accreditationId;
+    private AccreditationStatus targetStatus;
+    private Source source;
+    private long timestamp;
+
+    public AccreditationStateChangeEvent() {
+    }
+
+    public AccreditationStateChangeEvent(String accreditationId, AccreditationStatus targetStatus, Source source) {
+        this.accreditationId = accreditationId;
+        this.targetStatus = targetStatus;
+        this.source = source;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * what a whole Accreditation put on the queue, before this event existed, asked for
+     * @param acc
+     * @return
+     */
+    public static AccreditationStateChangeEvent fromLegacy(Accreditation acc) {
+        Source source = acc.getStatus() == AccreditationStatus.EXPIRED ? Source.EXPIRY : Source.API;
+        return new AccreditationStateChangeEvent(acc.getAccreditationId(), acc.getStatus(), source);
+    }
+
+    @JsonProperty("version")
+    public int getVersion() {
+        return version;
+    }
+
+    @JsonProperty("version")
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    @JsonProperty("accreditation_id")
+    public String getAccreditationId() {
+        return accreditationId;
+    }
+
+    @JsonProperty("accreditation_id")
+    public void setAccreditationId(String accreditationId) {
+        this.accreditationId = accreditationId;
+    }
+
+    @JsonProperty("target_status")
+    public AccreditationStatus getTargetStatus() {
+        return targetStatus;
+    }
+
+    @JsonProperty("target_status")
+    public void setTargetStatus(AccreditationStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+
+    @JsonProperty("source")
+    public Source getSource() {
+        return source;
+    }
+
+    @JsonProperty("source")
+    public void setSource(Source source) {
+        this.source = source;
+    }
+
+    @JsonProperty("timestamp")
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @JsonProperty("timestamp")
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+}
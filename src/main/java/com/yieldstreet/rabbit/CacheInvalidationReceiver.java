@@ -0,0 +1,23 @@
+package com.yieldstreet.rabbit;
+
+import com.yieldstreet.service.UserAccreditationsCache;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * listens on this instance's queue on the cache fanout exchange, the message is the user id whose
+ * accreditations changed somewhere in the cluster.
+ */
+@Service
+public class CacheInvalidationReceiver {
+
+    @Autowired
+    private UserAccreditationsCache userAccreditationsCache;
+
+    @RabbitListener(queues = "#{cacheInvalidationQueue.name}")
+    public void receiveInvalidation(String userId) {
+        userAccreditationsCache.invalidate(userId);
+    }
+
+}
@@ -1,13 +1,20 @@
 package com.yieldstreet.rabbit;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * this @Configuration class is needed to setup RabbitMQ, see application.properties for settings used here
@@ -27,6 +34,15 @@ public class RabbitMQConfig {
     @Value("${accreditation-expiry-delay-millis}")
     private String millisToExpiryStr;
 
+    @Value("${accreditation-cache-exchange}")
+    String cacheExchange;
+
+    @Value("${accreditation-consumer-batch-size:1}")
+    private int batchSize;
+
+    @Value("${accreditation-consumer-batch-timeout-millis:100}")
+    private long batchTimeoutMillis;
+
     @Bean
     Queue queue() {
         return new Queue(queueName, false);
@@ -42,15 +58,87 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(queue).to(exchange).with(routingkey);
     }
 
+    /**
+     * the partition queues and their bindings, see AccreditationPartitioner. single active consumer means any
+     * number of nodes can listen to a partition for failover, but only one of them receives its messages at a time.
+     * the unpartitioned queue above is kept so messages already on it, or from older senders, are still processed.
+     */
+    @Bean
+    Declarables partitionDeclarables(AccreditationPartitioner partitioner, DirectExchange exchange) {
+        List<Declarable> declarables = new ArrayList<>();
+        for(int i = 0; i < partitioner.getPartitionCount(); i++){
+            Queue partitionQueue = QueueBuilder.nonDurable(partitioner.queueName(i)).singleActiveConsumer().build();
+            declarables.add(partitionQueue);
+            declarables.add(BindingBuilder.bind(partitionQueue).to(exchange).with(partitioner.routingKey(i)));
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * every instance gets its own auto-deleted queue on the cache fanout exchange, so a cache invalidation
+     * published by whichever instance committed the change reaches all of them
+     */
+    @Bean
+    FanoutExchange cacheExchange() {
+        return new FanoutExchange(cacheExchange);
+    }
+
+    @Bean
+    Queue cacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    Binding cacheInvalidationBinding(Queue cacheInvalidationQueue, FanoutExchange cacheExchange) {
+        return BindingBuilder.bind(cacheInvalidationQueue).to(cacheExchange);
+    }
+
+    /**
+     * the SpringBOOT configured factory for the partition listeners, with consumer batching switched on when
+     * accreditation-consumer-batch-size is above 1. a batch is that many messages, or whatever has arrived once
+     * accreditation-consumer-batch-timeout-millis passes without a new one. the unpartitioned queue keeps the default.
+     */
+    @Bean
+    SimpleRabbitListenerContainerFactory partitionListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        if(batchSize > 1){
+            factory.setBatchListener(true);
+            factory.setConsumerBatchEnabled(true);
+            factory.setBatchSize(batchSize);
+            factory.setReceiveTimeout(batchTimeoutMillis);
+        }
+        return factory;
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
 
+    @Bean
+    public AccreditationEventBinaryConverter binaryMessageConverter() {
+        return new AccreditationEventBinaryConverter();
+    }
+
+    /**
+     * the converter SpringBOOT gives the listener containers and templates. incoming messages are converted
+     * according to their content type, so binary state change events and JSON can be on the same queue.
+     * anything without a registered content type, which includes all JSON, goes to the JSON converter.
+     */
+    @Bean
+    @Primary
+    public MessageConverter messageConverter() {
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(jsonMessageConverter());
+        converter.addDelegate(AccreditationEventBinaryConverter.CONTENT_TYPE, binaryMessageConverter());
+        return converter;
+    }
+
     @Bean
     public AmqpTemplate rabbit(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(jsonMessageConverter());
+        rabbitTemplate.setMessageConverter(messageConverter());
         return rabbitTemplate;
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.yieldstreet.rabbit;
+
+import com.yieldstreet.entity.Accreditation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * registers one listener container per partition this node consumes, see AccreditationPartitioner.
+ * the number of partitions is only known at runtime, so these cannot be @RabbitListener annotations.
+ * each container has a single consumer, that is what keeps the events for an accreditation in order.
+ *
+ * with accreditation-consumer-batch-size above 1 each container hands the receiver a batch of messages at a time,
+ * see RabbitMQConfig.partitionListenerContainerFactory.
+ */
+@Configuration
+public class RabbitMQPartitionConfig implements RabbitListenerConfigurer {
+    private static Logger logger = LoggerFactory.getLogger(RabbitMQPartitionConfig.class);
+
+    @Value("${accreditation-consumer-batch-size:1}")
+    private int batchSize;
+
+    @Autowired
+    private AccreditationPartitioner partitioner;
+
+    @Autowired
+    private RabbitMQReceiver rabbitMQReceiver;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private SimpleRabbitListenerContainerFactory partitionListenerContainerFactory;
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        for(int partition : partitioner.localPartitions()){
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("accreditation-partition-" + partition);
+            endpoint.setQueueNames(partitioner.queueName(partition));
+            endpoint.setConcurrency("1");
+            endpoint.setMessageListener(batchSize > 1 ? (BatchMessageListener)this::dispatchBatch : (MessageListener)this::dispatch);
+            registrar.registerEndpoint(endpoint, partitionListenerContainerFactory);
+        }
+    }
+
+    /**
+     * the same dispatch by payload type that @RabbitHandler does for the unpartitioned queue
+     */
+    private void dispatch(Message message) {
+        Object payload = messageConverter.fromMessage(message);
+        if(payload instanceof AccreditationStateChangeEvent event){
+            rabbitMQReceiver.receiveEvent(event);
+        }
+        else if(payload instanceof Accreditation acc){
+            rabbitMQReceiver.receiveMessage(acc);
+        }
+        else{
+            throw new AmqpRejectAndDontRequeueException("Unexpected message on accreditation partition queue: " +
+                    payload.getClass().getName());
+        }
+    }
+
+    /**
+     * a message which cannot be converted is dropped on its own here, rejecting it would reject the whole batch
+     */
+    private void dispatchBatch(List<Message> messages) {
+        List<AccreditationStateChangeEvent> events = new ArrayList<>(messages.size());
+        for(Message message : messages){
+            try{
+                Object payload = messageConverter.fromMessage(message);
+                if(payload instanceof AccreditationStateChangeEvent event){
+                    events.add(event);
+                }
+                else if(payload instanceof Accreditation acc){
+                    events.add(AccreditationStateChangeEvent.fromLegacy(acc));
+                }
+                else{
+                    logger.error("Dropped unexpected message on accreditation partition queue: " + payload.getClass().getName());
+                }
+            }
+            catch(MessageConversionException e){
+                logger.error("Dropped unreadable message on accreditation partition queue", e);
+            }
+        }
+        if(!events.isEmpty()){
+            rabbitMQReceiver.receiveEvents(events);
+        }
+    }
+
+}
@@ -3,32 +3,30 @@ package com.yieldstreet.rabbit;
 import com.yieldstreet.entity.*;
 import com.yieldstreet.repository.AccreditationHistoryRepository;
 import com.yieldstreet.repository.AccreditationRepository;
-import org.quartz.*;
+import com.yieldstreet.service.AccreditationStateMachine;
+import com.yieldstreet.service.AccreditationWritePipeline;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.quartz.QuartzJobBean;
-import org.springframework.scheduling.quartz.SchedulerFactoryBean;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Optional;
+import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Spring instantiates this because its a @Service, using @RabbitListener attaches it to the queue.
+ * Spring instantiates this because its a @Service, using @RabbitListener attaches it to the unpartitioned queue,
+ * the partition queues are attached in RabbitMQPartitionConfig.
  * Spring injects the dependencies such as the Repository layer.
+ * the @RabbitHandler to call is chosen by the type of the message, see the __TypeId__ header set by the sender.
  */
 @Service
+@RabbitListener(queues = "${accreditation-queue}")
 public class RabbitMQReceiver {
     private static Logger logger = LoggerFactory.getLogger(RabbitMQReceiver.class);
 
-    @Value("${accreditation-expiry-delay-millis}")
-    private String millisToExpiry;
-
     @Autowired
     private AccreditationRepository accreditationRepository;
 
@@ -36,139 +34,102 @@ public class RabbitMQReceiver {
     private AccreditationHistoryRepository accreditationHistoryRepository;
 
     @Autowired
-    private SchedulerFactoryBean quartzScheduler;
+    private AccreditationStateMachine accreditationStateMachine;
 
     @Autowired
-    private RabbitMQSender rabbitMQSender;
+    private AccreditationWritePipeline accreditationWritePipeline;
 
     /**
      * if an exception is thrown from here, RabbitMQ will retry the message. that may not be ideal.
-     * this method is single threaded since it is off a queue. we can enable multithreading per accreditation
-     * using a hashing plugin to RabbitMQ.
-     * @param acc
+     * this is called from the listener of the unpartitioned queue and from the one listener of each partition queue
+     * (see RabbitMQPartitionConfig). all events for one accreditation go to the same partition, so for any one
+     * accreditation this is still single threaded. the accreditation is versioned, so if a synchronous PUT
+     * (see accreditation-update-mode) changed it underneath us the commit fails and the event is retried.
+     * @param event
      */
     @Transactional
-    @RabbitListener(queues = "${accreditation-queue}")
-    public void receiveMessage(Accreditation acc) {
-        logger.debug("Received an accreditation state change event from RabbitMQ: "+ acc.getAccreditationId());
-        Optional<Accreditation> current = accreditationRepository.findById(acc.getAccreditationId());
-        if(current.isPresent()){
-            AccreditationStatus targetStatus = acc.getStatus();
-            Accreditation accCurrent = current.get();
-            AccreditationStatus currentStatus = accCurrent.getStatus();
-            // we ignore loopback transitions to avoid polluting the history
-            if(     (currentStatus!=AccreditationStatus.FAILED && targetStatus==AccreditationStatus.FAILED) ||
-                    (currentStatus==AccreditationStatus.PENDING && targetStatus==AccreditationStatus.CONFIRMED) ||
-                    (currentStatus==AccreditationStatus.CONFIRMED && targetStatus==AccreditationStatus.EXPIRED)    ) {
-                // the history table has the old statuses, the accreditation table always has the latest
-                // accreditation status - latest and history are linked by the accreditation_id and the timestamp
-                long now = System.currentTimeMillis();
-                AccreditationHistory accHistory = new AccreditationHistory();
-                accHistory.setLastUpdateTime(now);
-                accHistory.setAccreditationId(acc.getAccreditationId());
-                accHistory.setOldStatus(accCurrent.getStatus());
-                // there is a DB transaction around these saves
-                accreditationHistoryRepository.save(accHistory);
-                acc.setLastUpdateTime(now);
-                accreditationRepository.save(acc);
-                if(currentStatus==AccreditationStatus.PENDING && targetStatus==AccreditationStatus.CONFIRMED){
-                    startScheduledTaskToExpireLater(accreditationRepository, acc, rabbitMQSender);
-                    logger.debug("Scheduled a job to expire confirmed accreditation after period of inactivity exceeded: "+
-                            acc.getAccreditationId());
-                }
-            }
-            else{
-                // log ignored transition for the accreditation_id
-                logger.error("No state change was possible for accreditation "+ acc.getAccreditationId()
-                            + ", Current state "+ currentStatus.name()
-                            + ", Target state "+ targetStatus.name());
-            }
-        }
-        else{
-            logger.error("No state change possible for unknown accreditation: "+ acc.getAccreditationId());
+    @RabbitHandler
+    public void receiveEvent(AccreditationStateChangeEvent event) {
+        if(event.getVersion() > AccreditationStateChangeEvent.CURRENT_VERSION){
+            // retrying wont help, a newer producer is ahead of this receiver
+            throw new AmqpRejectAndDontRequeueException("Unsupported state change event version " + event.getVersion() +
+                    " for accreditation: " + event.getAccreditationId());
         }
+        logger.debug("Received an accreditation state change event from RabbitMQ: "+ event.getAccreditationId()
+                + ", source " + event.getSource());
+        applyStateChange(event.getAccreditationId(), event.getTargetStatus());
     }
 
     /**
-     * Job will poll the accreditation every 1 minute to see if it needs to be expired, in PROD this would
-     * most likely be less frequent.
+     * compatibility path, before AccreditationStateChangeEvent the whole accreditation was put on the queue.
+     * only its id and status were ever used, so anything still in flight in that format is handled the same way.
      * @param acc
      */
-    private void startScheduledTaskToExpireLater(AccreditationRepository accreditationRepository, Accreditation acc, RabbitMQSender rabbitMQSender){
-        JobDetail detail =  JobBuilder.newJob(ExpiryJob.class)
-                .withIdentity("schedule")
-                .withDescription("Expiry schedule task")
-                .build();
-        // this is how you pass data into the quartz job
-        JobDataMap data = detail.getJobDataMap();
-        data.put("accreditationRepository", accreditationRepository);
-        data.put("accreditation", acc);
-        data.put("rabbitMQSender", rabbitMQSender);
-        data.put("millisToExpiry", millisToExpiry);
-        String MINUTELY_CRON = "0 * * * * ?";
-        // String HOURLY_CRON = "* 0 * * * ?";
-        Trigger trigger = TriggerBuilder.newTrigger()
-                .withIdentity(acc.getAccreditationId())
-                .forJob(detail)
-                .withSchedule(CronScheduleBuilder.cronSchedule(MINUTELY_CRON)).build();
-        Scheduler scheduler = this.quartzScheduler.getScheduler();
-        try {
-            scheduler.scheduleJob(detail, new HashSet<>(Arrays.asList(trigger)), true);
-        } catch (SchedulerException e) {
-            throw new IllegalStateException("Could not schedule an expiry job for confirmed accreditation: " +
-                    acc.getAccreditationId());
-        }
+    @Transactional
+    @RabbitHandler
+    public void receiveMessage(Accreditation acc) {
+        logger.debug("Received a legacy accreditation state change message from RabbitMQ: "+ acc.getAccreditationId());
+        applyStateChange(acc.getAccreditationId(), acc.getStatus());
     }
 
     /**
-     * this callback happens on the quartz thread, references on the main thread can be gone by the time this happens.
-     * so pass what you need in here as arguments using the JobDataMap.
+     * batch mode, see accreditation-consumer-batch-size. the events are applied in arrival order to accreditations
+     * which are all loaded with one query, so several events for the same accreditation collapse into the same
+     * sequence of transitions they would have made one at a time, each stamped at least a millisecond after the one
+     * before so the history keeps their order. the history rows and accreditation updates are written in one
+     * transaction (batched by JDBC), and the whole batch is acked or retried together.
+     * @param events
      */
-    class ExpiryJob extends QuartzJobBean {
-        @Override
-        protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
-            // careful of logging here, it can get called a lot
-            JobDataMap args = context.getJobDetail().getJobDataMap();
-            AccreditationRepository accreditationRepository = (AccreditationRepository)args.get("accreditationRepository");
-            Accreditation jobAccreditation = (Accreditation)args.get("accreditation");
-            RabbitMQSender rabbitMQSender = (RabbitMQSender)args.get("rabbitMQSender");
-            Long millisToExpiryValue = Long.valueOf((String)args.get("millisToExpiry"));
-            String accreditationId = jobAccreditation.getAccreditationId();
-            // load the latest in case something updated the timestamp since job was created
-            Optional<Accreditation> current = accreditationRepository.findById(accreditationId);
-            if(current.isPresent()){
-                Accreditation acc = current.get();
-                long now = System.currentTimeMillis();
-                // its possible that just before the scheduled job was about to EXPIRE, someone triggered it via the API.
-                // so we unschedule the job in both cases.
-                if((now - acc.getLastUpdateTime()) > millisToExpiryValue) {
-                    logger.debug("Expiry job activated and expiration time reached for accredication: " +
-                            acc.getAccreditationId());
-                    if (acc.getStatus() == AccreditationStatus.CONFIRMED) {
-                        // change the status via the queue to avoid a race condition on the status
-                        // queue enforces single thread (at least per accreditation_id)
-                        acc.setStatus(AccreditationStatus.EXPIRED);
-                        rabbitMQSender.send(acc);
-                        killExpiryJob(context, accreditationId);
-                        logger.debug("Queued expiration state change event, deactivating expiry job for accreditation: "+
-                                accreditationId );
-                    } else if (acc.getStatus() == AccreditationStatus.EXPIRED) {
-                        killExpiryJob(context, accreditationId);
-                    }
-                }
+    @Transactional
+    public void receiveEvents(List<AccreditationStateChangeEvent> events) {
+        Set<String> ids = new LinkedHashSet<>();
+        for(AccreditationStateChangeEvent event : events){
+            ids.add(event.getAccreditationId());
+        }
+        Map<String, Accreditation> current = new HashMap<>();
+        for(Accreditation acc : accreditationRepository.findAllById(ids)){
+            current.put(acc.getAccreditationId(), acc);
+        }
+        long now = System.currentTimeMillis();
+        List<AccreditationHistory> histories = new ArrayList<>();
+        for(AccreditationStateChangeEvent event : events){
+            if(event.getVersion() > AccreditationStateChangeEvent.CURRENT_VERSION){
+                // rejecting it would reject the whole batch, so it is dropped on its own
+                logger.error("Unsupported state change event version " + event.getVersion() +
+                        " for accreditation: " + event.getAccreditationId());
+                continue;
+            }
+            Accreditation accCurrent = current.get(event.getAccreditationId());
+            if(accCurrent == null){
+                logger.error("No state change possible for unknown accreditation: "+ event.getAccreditationId());
+                continue;
+            }
+            // the batch shares one clock reading, but the history is ordered by time so every transition of an
+            // accreditation has to land after the one before it
+            long time = Math.max(now, accCurrent.getLastUpdateTime() + 1);
+            AccreditationHistory accHistory = accreditationStateMachine.transition(accCurrent, event.getTargetStatus(), time);
+            if(accHistory != null){
+                histories.add(accHistory);
             }
         }
+        // the accreditations are managed so their updates are flushed in the same JDBC batches as these inserts
+        accreditationWritePipeline.recordTransitions(histories);
+        logger.debug("Applied " + histories.size() + " state changes from a batch of " + events.size() + " events");
     }
 
-    /**
-     * once the job has expired the confirmed accreditation it can be desecheduled from Quartz
-     */
-    private void killExpiryJob(JobExecutionContext context, String accreditationId){
-        try {
-            context.getScheduler().unscheduleJob(new TriggerKey(accreditationId));
-        } catch (SchedulerException e) {
-            throw new IllegalStateException("Could not unschedule an expiry job for expired accreditation: " +
-                    accreditationId);
+    private void applyStateChange(String accreditationId, AccreditationStatus targetStatus) {
+        Optional<Accreditation> current = accreditationRepository.findById(accreditationId);
+        if(current.isPresent()){
+            Accreditation accCurrent = current.get();
+            AccreditationHistory accHistory = accreditationStateMachine.transition(accCurrent, targetStatus, System.currentTimeMillis());
+            if(accHistory != null){
+                // there is a DB transaction around these saves
+                accreditationHistoryRepository.save(accHistory);
+                accreditationRepository.save(accCurrent);
+            }
+        }
+        else{
+            logger.error("No state change possible for unknown accreditation: "+ accreditationId);
         }
     }
 
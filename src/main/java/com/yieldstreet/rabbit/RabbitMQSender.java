@@ -1,13 +1,48 @@
 package com.yieldstreet.rabbit;
 
-import com.yieldstreet.entity.Accreditation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * sends the state change events. a send is put on an in-memory queue and a single dispatcher thread publishes
+ * whatever has queued up, up to accreditation-publish-batch-size at a time, on one channel. under light load that
+ * is one message per batch so nothing waits, under heavy load the batches fill up and we pay one channel checkout
+ * for many messages.
+ *
+ * with spring.rabbitmq.publisher-confirm-type=correlated every message gets a CorrelationData and the future a caller
+ * gets back completes when the broker acks it, or fails on a nack, a closed channel or after
+ * accreditation-publish-confirm-timeout-millis. the dispatcher does not wait for the acks, so many publishes are in
+ * flight on a channel at once. at most accreditation-publish-max-in-flight sends can be queued or waiting for their
+ * ack, a caller beyond that blocks for up to the confirm timeout and then fails, so a slow broker pushes back on
+ * the PUTs instead of the queue growing without bound. without confirms a send completes once it is published.
+ *
+ * send and sendAll still block, they wait for the acks so a PUT is only accepted once the broker has the message.
+ */
 @Service
 public class RabbitMQSender {
+    private static Logger logger = LoggerFactory.getLogger(RabbitMQSender.class);
 
     @Autowired
     private AmqpTemplate rabbitTemplate;
@@ -15,11 +50,262 @@ public class RabbitMQSender {
     @Value("${accreditation-exchange}")
     private String exchange;
 
-    @Value("${accreditation-routingkey}")
-    private String routingkey;
+    @Value("${accreditation-cache-exchange}")
+    private String cacheExchange;
+
+    // json or binary, see AccreditationEventBinaryConverter
+    @Value("${accreditation-event-wire-format:json}")
+    private String wireFormat;
+
+    @Value("${accreditation-publish-max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${accreditation-publish-batch-size:100}")
+    private int publishBatchSize;
+
+    @Value("${accreditation-publish-confirm-timeout-millis:5000}")
+    private long confirmTimeoutMillis;
+
+    @Autowired
+    private AccreditationEventBinaryConverter binaryMessageConverter;
+
+    @Autowired
+    private AccreditationPartitioner partitioner;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Environment environment;
+
+    private final BlockingQueue<PendingPublish> queued = new LinkedBlockingQueue<>();
+    private Semaphore inFlight;
+    private boolean confirms;
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    private Timer confirmTimer;
+    private Counter nackCounter;
+    private Counter timeoutCounter;
+
+    private record PendingPublish(AccreditationStateChangeEvent event, CompletableFuture<Void> result) {}
+
+    @PostConstruct
+    void start() {
+        inFlight = new Semaphore(maxInFlight);
+        confirms = rabbitTemplate instanceof RabbitTemplate template
+                && template.getConnectionFactory().isPublisherConfirms();
+        confirmTimer = Timer.builder("accreditation.publish.confirm")
+                .description("Time from publishing a state change event to the broker confirming it")
+                .register(meterRegistry);
+        nackCounter = Counter.builder("accreditation.publish.nack")
+                .description("State change events the broker nacked, or lost with their channel")
+                .register(meterRegistry);
+        timeoutCounter = Counter.builder("accreditation.publish.timeout")
+                .description("State change events not confirmed within the confirm timeout")
+                .register(meterRegistry);
+        Gauge.builder("accreditation.publish.in.flight", () -> maxInFlight - inFlight.availablePermits())
+                .description("State change events queued or waiting for the broker to confirm them")
+                .register(meterRegistry);
+        if(!confirms){
+            logger.warn("Publisher confirms are off, a state change event counts as sent once it is published");
+        }
+        // the dispatcher blocks on the broker, with spring.threads.virtual.enabled it runs on a virtual thread
+        ThreadFactory threads = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("accreditation-publisher-").getVirtualThreadFactory()
+                : r -> {
+                    Thread t = new Thread(r, "accreditation-publisher");
+                    t.setDaemon(true);
+                    return t;
+                };
+        running = true;
+        dispatcher = threads.newThread(this::dispatch);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if(dispatcher != null){
+            dispatcher.interrupt();
+        }
+    }
+
+    /**
+     * sends the event and waits for the broker to confirm it
+     * @param to
+     */
+    public void send(AccreditationStateChangeEvent to) {
+        await(sendAsync(to));
+    }
+
+    /**
+     * sends a batch of state change events and waits until the broker has confirmed all of them. they go through
+     * the dispatcher together, so the expiry sweeper's pages are still published many to a channel.
+     * @param batch
+     */
+    public void sendAll(List<AccreditationStateChangeEvent> batch) {
+        if(batch.isEmpty()){
+            return;
+        }
+        await(CompletableFuture.allOf(sendAllAsync(batch).toArray(new CompletableFuture[0])));
+    }
+
+    /**
+     * one future per event, in the order given, so a caller can tell which of them made it
+     * @param batch
+     * @return
+     */
+    public List<CompletableFuture<Void>> sendAllAsync(List<AccreditationStateChangeEvent> batch) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(batch.size());
+        for(AccreditationStateChangeEvent to : batch){
+            results.add(sendAsync(to));
+        }
+        return results;
+    }
+
+    /**
+     * queues the event for the dispatcher. blocks only while the in-flight window is full.
+     * @param to
+     * @return a future completed when the broker acks the event
+     */
+    public CompletableFuture<Void> sendAsync(AccreditationStateChangeEvent to) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try{
+            if(!inFlight.tryAcquire(confirmTimeoutMillis, TimeUnit.MILLISECONDS)){
+                result.completeExceptionally(new AmqpException("Too many state change events waiting for the broker"));
+                return result;
+            }
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(new AmqpException(e));
+            return result;
+        }
+        // whichever comes first of the ack, the nack or the timeout settles it and frees the slot
+        result.orTimeout(confirmTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((v, e) -> {
+            inFlight.release();
+            if(e instanceof TimeoutException){
+                timeoutCounter.increment();
+            }
+        });
+        if(!running){
+            result.completeExceptionally(new AmqpException("Sender is stopped"));
+            return result;
+        }
+        queued.add(new PendingPublish(to, result));
+        return result;
+    }
+
+    /**
+     * tells every instance to drop its cached GET for the user, see UserAccreditationsCache
+     * @param userId
+     */
+    public void sendCacheInvalidation(String userId) {
+        rabbitTemplate.convertAndSend(cacheExchange, "", userId);
+    }
+
+    /**
+     * runs on the dispatcher thread, takes whatever is queued (at least one) and publishes it on one channel
+     */
+    private void dispatch() {
+        List<PendingPublish> batch = new ArrayList<>(publishBatchSize);
+        while(running){
+            try{
+                batch.add(queued.take());
+                queued.drainTo(batch, publishBatchSize - 1);
+                publishBatch(batch);
+            }
+            catch(InterruptedException e){
+                break;
+            }
+            catch(Exception e){
+                logger.error("State change event dispatcher failed", e);
+            }
+            finally{
+                batch.clear();
+            }
+        }
+        PendingPublish left;
+        while((left = queued.poll()) != null){
+            left.result().completeExceptionally(new AmqpException("Sender is stopped"));
+        }
+    }
+
+    private void publishBatch(List<PendingPublish> batch) {
+        try{
+            if(rabbitTemplate instanceof RabbitOperations rabbitOperations){
+                rabbitOperations.invoke(operations -> {
+                    for(PendingPublish pending : batch){
+                        publish(operations, pending);
+                    }
+                    return null;
+                });
+            }
+            else{
+                for(PendingPublish pending : batch){
+                    publish(rabbitTemplate, pending);
+                }
+            }
+        }
+        catch(Exception e){
+            // the ones already acked stay acked. the rest may or may not have reached the broker, the caller
+            // can send them again since the receiver checks every transition
+            logger.error("Could not publish " + batch.size() + " state change events", e);
+            for(PendingPublish pending : batch){
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * routed to the partition queue for the accreditation, see AccreditationPartitioner
+     */
+    private void publish(AmqpTemplate template, PendingPublish pending) {
+        AccreditationStateChangeEvent to = pending.event();
+        String routingkey = partitioner.routingKeyFor(to.getAccreditationId());
+        if(!confirms || !(template instanceof RabbitOperations operations)){
+            if("binary".equals(wireFormat)){
+                template.send(exchange, routingkey, binaryMessageConverter.toMessage(to, new MessageProperties()));
+            }
+            else{
+                template.convertAndSend(exchange, routingkey, to);
+            }
+            pending.result().complete(null);
+            return;
+        }
+        CorrelationData correlation = new CorrelationData();
+        long published = System.nanoTime();
+        correlation.getFuture().whenComplete((confirm, e) -> {
+            confirmTimer.record(System.nanoTime() - published, TimeUnit.NANOSECONDS);
+            if(e == null && confirm.isAck()){
+                pending.result().complete(null);
+            }
+            else{
+                nackCounter.increment();
+                String reason = e != null ? e.getMessage() : confirm.getReason();
+                pending.result().completeExceptionally(new AmqpException("State change event for accreditation "
+                        + to.getAccreditationId() + " was not confirmed by the broker: " + reason));
+            }
+        });
+        if("binary".equals(wireFormat)){
+            operations.send(exchange, routingkey, binaryMessageConverter.toMessage(to, new MessageProperties()), correlation);
+        }
+        else{
+            operations.convertAndSend(exchange, routingkey, to, correlation);
+        }
+    }
 
-    public void send(Accreditation to) {
-        rabbitTemplate.convertAndSend(exchange, routingkey, to);
+    private static void await(CompletableFuture<?> result) {
+        try{
+            result.join();
+        }
+        catch(CompletionException e){
+            if(e.getCause() instanceof AmqpException amqpException){
+                throw amqpException;
+            }
+            throw new AmqpException(e.getCause());
+        }
     }
 
-}
\ No newline at end of file
+}
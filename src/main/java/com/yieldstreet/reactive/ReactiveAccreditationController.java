@@ -0,0 +1,60 @@
+package com.yieldstreet.reactive;
+
+import com.yieldstreet.dto.UserAccreditationsDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * the client facing GET of AccreditationController, same url and same JSON, without tying up a thread per request.
+ * when the connection pool is saturated a request waits at most accreditation-read-timeout-millis and then gets a
+ * 503 with Retry-After, so a slow database makes reads fail fast rather than piling up.
+ */
+@RestController
+@RequestMapping(path="/user")
+public class ReactiveAccreditationController {
+    private static Logger logger = LoggerFactory.getLogger(ReactiveAccreditationController.class);
+
+    @Autowired
+    private ReactiveAccreditationRepository repository;
+
+    @Value("${accreditation-read-timeout-millis:2000}")
+    private long readTimeoutMillis;
+
+    @Value("${accreditation-read-retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    /**
+     * endpoint for client facing traffic
+     * @param userId
+     * @return
+     */
+    @GetMapping(path= "/{user_id}/accreditation")
+    public Mono<UserAccreditationsDTO> getUserAccreditations(@PathVariable("user_id") String userId) {
+        return repository.findStatusesByUserId(userId)
+                .collectMap(entry -> entry.getKey(), entry -> entry.getValue(), HashMap::new)
+                .map(statuses -> new UserAccreditationsDTO(userId, statuses))
+                .timeout(Duration.ofMillis(readTimeoutMillis));
+    }
+
+    @ExceptionHandler({TimeoutException.class, TransientDataAccessException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<String> handleUnavailable(Exception ex) {
+        logger.error("Accreditation read refused, database busy or unavailable: " + ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds))
+                .body("Accreditations are not available right now, try again shortly");
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.yieldstreet.reactive;
+
+import com.yieldstreet.dto.AccreditationTypeAndStatusDTO;
+import com.yieldstreet.entity.AccreditationStatus;
+import com.yieldstreet.entity.AccreditationType;
+import com.yieldstreet.entity.UuidBinaryType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * the status listing of AccreditationRepository.findStatusesByUserId over R2DBC, the same columns from the same
+ * (user_id, status) index and nothing from the document table
+ */
+@Repository
+public class ReactiveAccreditationRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Flux<Map.Entry<String, AccreditationTypeAndStatusDTO>> findStatusesByUserId(String userId) {
+        return databaseClient.sql("select accreditation_id, status, type from accreditation where user_id = :userId")
+                .bind("userId", userId)
+                .map((row, metadata) -> Map.entry(
+                        UuidBinaryType.toString(toBytes(row.get("accreditation_id"))),
+                        new AccreditationTypeAndStatusDTO(
+                                AccreditationStatus.valueOf(row.get("status", Integer.class)).name(),
+                                AccreditationType.valueOf(row.get("type", Integer.class)).name())))
+                .all();
+    }
+
+    // the driver hands BINARY columns back as a ByteBuffer or a byte[] depending on its version
+    private static byte[] toBytes(Object column) {
+        if(column instanceof ByteBuffer buffer){
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        return (byte[]) column;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.yieldstreet.reactive;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * the client facing read tier, a separate application serving GET /user/{user_id}/accreditation from the same database
+ * without blocking: WebFlux on netty in front and R2DBC behind. it is in the same jar as the main app but runs on its own
+ * (see readme), configured by readtier.properties rather than application.properties. the main app leaves this package
+ * out of its component scan, and this one turns off the JPA, flyway, rabbit and quartz setup it has no use for.
+ *
+ * deliberately not a @SpringBootApplication, the test slices look for a single @SpringBootConfiguration in the tree.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableAutoConfiguration
+@ComponentScan
+public class ReadTierApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReadTierApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .properties("spring.config.name=readtier")
+                .run(args);
+    }
+
+    // tomcat is on the classpath for the main app and would otherwise be picked for this one too
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+}
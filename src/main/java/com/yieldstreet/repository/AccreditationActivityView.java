@@ -0,0 +1,12 @@
+package com.yieldstreet.repository;
+
+/**
+ * a Spring Data projection of just what the expiry engines need to know about a confirmed accreditation
+ */
+public interface AccreditationActivityView {
+
+    String getAccreditationId();
+
+    long getLastUpdateTime();
+
+}
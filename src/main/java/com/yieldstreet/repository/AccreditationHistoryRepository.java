@@ -1,7 +1,10 @@
 package com.yieldstreet.repository;
 
 import com.yieldstreet.entity.AccreditationHistory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,6 +12,22 @@ import java.util.List;
 @Repository
 public interface AccreditationHistoryRepository extends JpaRepository<AccreditationHistory, String> {
 
-    List<AccreditationHistory> findByAccreditationIdIs(String accreditationId);
+    String HISTORY_AFTER = "select h.accreditationHistoryId as accreditationHistoryId, h.oldStatusCode as statusCode, " +
+            "a.typeCode as typeCode, h.lastUpdateTime as lastUpdateTime " +
+            "from AccreditationHistory h join Accreditation a on a.accreditationId = h.accreditationId " +
+            "where h.accreditationId = :accreditationId " +
+            "and (h.lastUpdateTime > :afterTime or (h.lastUpdateTime = :afterTime and h.accreditationHistoryId > :afterId)) " +
+            "order by h.lastUpdateTime, h.accreditationHistoryId";
 
-}
\ No newline at end of file
+    /**
+     * one page of the history of an accreditation in time order, keyset paginated on (lastUpdateTime, id) so
+     * each page is a range of the (accreditation_id, last_update_time) index however deep into the history it is.
+     * the type comes from the same query by the join.
+     */
+    @Query(HISTORY_AFTER)
+    List<AccreditationHistoryView> findHistoryAfter(@Param("accreditationId") String accreditationId,
+                                                    @Param("afterTime") long afterTime,
+                                                    @Param("afterId") String afterId,
+                                                    Limit limit);
+
+}
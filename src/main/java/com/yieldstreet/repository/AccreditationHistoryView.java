@@ -0,0 +1,17 @@
+package com.yieldstreet.repository;
+
+/**
+ * a Spring Data projection of a history row joined to its accreditation, just what the history endpoint returns
+ * plus the history id which breaks ties in the keyset order
+ */
+public interface AccreditationHistoryView {
+
+    String getAccreditationHistoryId();
+
+    int getStatusCode();
+
+    int getTypeCode();
+
+    long getLastUpdateTime();
+
+}
@@ -1,14 +1,67 @@
 package com.yieldstreet.repository;
 
 import com.yieldstreet.entity.Accreditation;
+import com.yieldstreet.entity.Document;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AccreditationRepository extends JpaRepository<Accreditation, String> {
 
     List<Accreditation> findByUserIdIs(String userId);
 
-}
\ No newline at end of file
+    @Query("select a.accreditationId as accreditationId, a.statusCode as statusCode, a.typeCode as typeCode " +
+            "from Accreditation a where a.userId = :userId")
+    List<AccreditationStatusView> findStatusesByUserId(@Param("userId") String userId);
+
+    @Query("select a.userId as userId, a.accreditationId as accreditationId, a.statusCode as statusCode, " +
+            "a.typeCode as typeCode from Accreditation a where a.userId in :userIds")
+    List<UserAccreditationStatusView> findStatusesByUserIdIn(@Param("userIds") Collection<String> userIds);
+
+    /**
+     * the document of an accreditation in one query, for the download endpoint
+     */
+    @Query("select d from Accreditation a join a.document d where a.accreditationId = :accreditationId")
+    Optional<Document> findDocumentByAccreditationId(@Param("accreditationId") String accreditationId);
+
+    /**
+     * the id of the users accreditation in the given status, if there is one. answered from the
+     * (user_id, status) index alone, for the at most one PENDING per user check on insert.
+     */
+    @Query("select a.accreditationId from Accreditation a where a.userId = :userId and a.statusCode = :statusCode")
+    List<String> findIdsByUserIdAndStatusCode(@Param("userId") String userId,
+                                              @Param("statusCode") int statusCode,
+                                              Limit limit);
+
+    /**
+     * which of the users have an accreditation in the given status, for the pending check on a batch of inserts.
+     * one range probe of the (user_id, status) index per user.
+     */
+    @Query("select distinct a.userId from Accreditation a where a.userId in :userIds and a.statusCode = :statusCode")
+    List<String> findUserIdsByUserIdInAndStatusCode(@Param("userIds") Collection<String> userIds,
+                                                    @Param("statusCode") int statusCode);
+
+    /**
+     * one page of accreditations in the given status which have not been touched since the cutoff.
+     * this is keyset paginated on (lastUpdateTime, accreditationId) so that the expiry sweeper can walk
+     * the (status, lastUpdateTime) index without the OFFSET cost, and without skipping rows when the
+     * previous page is being expired underneath it.
+     */
+    @Query("select a.accreditationId as accreditationId, a.lastUpdateTime as lastUpdateTime from Accreditation a " +
+            "where a.statusCode = :statusCode and a.lastUpdateTime < :cutoff " +
+            "and (a.lastUpdateTime > :afterTime or (a.lastUpdateTime = :afterTime and a.accreditationId > :afterId)) " +
+            "order by a.lastUpdateTime, a.accreditationId")
+    List<AccreditationActivityView> findInactiveSince(@Param("statusCode") int statusCode,
+                                                      @Param("cutoff") long cutoff,
+                                                      @Param("afterTime") long afterTime,
+                                                      @Param("afterId") String afterId,
+                                                      Limit limit);
+
+}
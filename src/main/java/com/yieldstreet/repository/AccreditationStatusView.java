@@ -0,0 +1,15 @@
+package com.yieldstreet.repository;
+
+/**
+ * a Spring Data projection of just the columns the status listings need, selecting through this
+ * never touches the document table so no document content is loaded.
+ */
+public interface AccreditationStatusView {
+
+    String getAccreditationId();
+
+    int getStatusCode();
+
+    int getTypeCode();
+
+}
@@ -0,0 +1,42 @@
+package com.yieldstreet.repository;
+
+import com.yieldstreet.entity.DocumentBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentBlobRepository extends JpaRepository<DocumentBlob, String> {
+
+    /**
+     * counts one more document using the blob, creating its row the first time. a single statement so two
+     * uploads of the same content at once cannot lose a reference.
+     */
+    @Modifying
+    @Query(value = "insert into document_blob (hash, size, ref_count, created_time) values (:hash, :size, 1, :now) " +
+            "on duplicate key update ref_count = ref_count + 1", nativeQuery = true)
+    void addReference(@Param("hash") String hash, @Param("size") long size, @Param("now") long now);
+
+    /**
+     * the row locked until the transaction ends, for the garbage collector. when there is no row InnoDB (at the
+     * default REPEATABLE READ) still locks the gap it would go in, so an addReference for the hash waits too.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from DocumentBlob b where b.hash = :hash")
+    Optional<DocumentBlob> findForUpdate(@Param("hash") String hash);
+
+    /**
+     * keyset paginated on hash, for the integrity verifier
+     */
+    @Query("select b from DocumentBlob b where b.hash > :afterHash order by b.hash")
+    List<DocumentBlob> findPage(@Param("afterHash") String afterHash, Limit limit);
+
+}
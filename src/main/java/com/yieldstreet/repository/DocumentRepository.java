@@ -5,6 +5,6 @@ import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface DocumentRepository extends CrudRepository<Document, Integer> {
+public interface DocumentRepository extends CrudRepository<Document, String> {
 
 }
\ No newline at end of file
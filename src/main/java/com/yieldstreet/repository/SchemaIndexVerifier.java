@@ -0,0 +1,60 @@
+package com.yieldstreet.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the repository queries are only fast because of the indexes created in db/migration, without them
+ * they silently become full table scans. so at startup we check every one of them is there with the
+ * columns in the right order, and refuse to start if not, rather than find out from the GET latency.
+ */
+@Component
+public class SchemaIndexVerifier {
+    private static Logger logger = LoggerFactory.getLogger(SchemaIndexVerifier.class);
+
+    // index name -> table and columns in index order
+    static final Map<String, List<String>> EXPECTED_INDEXES = new LinkedHashMap<>();
+    static {
+        EXPECTED_INDEXES.put("idx_accreditation_user_status", List.of("accreditation", "user_id", "status", "type"));
+        EXPECTED_INDEXES.put("idx_accreditation_status_time", List.of("accreditation", "status", "last_update_time"));
+        EXPECTED_INDEXES.put("idx_history_accreditation_time", List.of("accreditation_history", "accreditation_id", "last_update_time"));
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verify() {
+        List<String> problems = new ArrayList<>();
+        for(Map.Entry<String, List<String>> expected : EXPECTED_INDEXES.entrySet()){
+            String index = expected.getKey();
+            String table = expected.getValue().get(0);
+            List<String> columns = expected.getValue().subList(1, expected.getValue().size());
+            List<String> actual = jdbcTemplate.queryForList(
+                    "select column_name from information_schema.statistics " +
+                    "where table_schema = database() and table_name = ? and index_name = ? order by seq_in_index",
+                    String.class, table, index);
+            if(actual.isEmpty()){
+                problems.add("missing index " + index + " on " + table);
+            }
+            else if(!actual.equals(columns)){
+                problems.add("index " + index + " on " + table + " is " + actual + " but should be " + columns);
+            }
+        }
+        if(!problems.isEmpty()){
+            throw new IllegalStateException("Schema is missing the indexes the repository queries rely on: " + problems);
+        }
+        logger.debug("Verified schema indexes " + EXPECTED_INDEXES.keySet());
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.yieldstreet.repository;
+
+/**
+ * AccreditationStatusView with the user, for listing the statuses of several users in one query
+ */
+public interface UserAccreditationStatusView extends AccreditationStatusView {
+
+    String getUserId();
+
+}
@@ -0,0 +1,26 @@
+package com.yieldstreet.service;
+
+import com.yieldstreet.dto.AccreditationHistoricTypeAndStatusDTO;
+
+/**
+ * one page of an accreditation's history, and the cursor to pass back for the next one (null on the last page)
+ */
+public class AccreditationHistoryPage {
+
+    private final AccreditationHistoricTypeAndStatusDTO[] histories;
+    private final String nextCursor;
+
+    public AccreditationHistoryPage(AccreditationHistoricTypeAndStatusDTO[] histories, String nextCursor) {
+        this.histories = histories;
+        this.nextCursor = nextCursor;
+    }
+
+    public AccreditationHistoricTypeAndStatusDTO[] getHistories() {
+        return histories;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+}
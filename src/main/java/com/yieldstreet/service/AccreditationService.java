@@ -1,21 +1,38 @@
 package com.yieldstreet.service;
 
+import com.yieldstreet.document.DocumentContentService;
+import com.yieldstreet.document.DocumentDownload;
+import com.yieldstreet.document.StoredContent;
 import com.yieldstreet.dto.*;
 import com.yieldstreet.exception.*;
 import com.yieldstreet.entity.*;
+import com.yieldstreet.rabbit.AccreditationStateChangeEvent;
 import com.yieldstreet.rabbit.RabbitMQSender;
 import com.yieldstreet.repository.AccreditationHistoryRepository;
+import com.yieldstreet.repository.AccreditationHistoryView;
 import com.yieldstreet.repository.AccreditationRepository;
-import com.yieldstreet.repository.DocumentRepository;
+import com.yieldstreet.repository.AccreditationStatusView;
+import com.yieldstreet.repository.UserAccreditationStatusView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.MimeType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * this class provides methods for working with accreditation data via REST endpoints.
@@ -33,10 +50,49 @@ public class AccreditationService {
     private AccreditationHistoryRepository accreditationHistoryRepository;
 
     @Autowired
-    private DocumentRepository docRepository;
+    private RabbitMQSender rabbitMQSender;
 
     @Autowired
-    private RabbitMQSender rabbitMQSender;
+    private UserAccreditationsCache userAccreditationsCache;
+
+    @Autowired
+    private AccreditationWritePipeline accreditationWritePipeline;
+
+    @Autowired
+    private AccreditationStateMachine accreditationStateMachine;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // queue or sync, see updateAccreditation
+    @Value("${accreditation-update-mode:queue}")
+    private String updateMode;
+
+    @Value("${accreditation-update-sync-attempts:3}")
+    private int syncUpdateAttempts;
+
+    @Value("${accreditation-bulk-outcome-max:1000}")
+    private int maxBulkOutcomes;
+
+    @Value("${accreditation-lookup-max-users:500}")
+    private int maxLookupUsers;
+
+    @Value("${accreditation-history-page-size:100}")
+    private int historyPageSize;
+
+    @Value("${accreditation-history-max-page-size:1000}")
+    private int maxHistoryPageSize;
+
+    private static final String SYNC_UPDATE_MODE = "sync";
+
+    // the unique index on pending_user_id, see db/migration
+    private static final String PENDING_CONSTRAINT = "uk_accreditation_pending_user";
 
     /**
      * insertion to MySQL of an accreditation, this is seperated into a Document and Accreditation
@@ -47,20 +103,52 @@ public class AccreditationService {
      */
     @Transactional
     public AccreditationIdDTO insertAccreditation(AccreditationDTO accreditationDTO) {
+        return insertAccreditation(accreditationDTO,
+                doc -> documentContentService.storeContent(doc, accreditationDTO.getDocument().getContent()));
+    }
+
+    /**
+     * as above but the document content is streamed from the request body instead of being in the DTO.
+     * the body goes straight to the document store as it is read so it is never held in memory, and it is read
+     * with no transaction open so a slow client does not hold a database connection while it sends the document.
+     * the pending check is made first in a short read, then the content is stored, then only the inserts run in a
+     * transaction. that checks pending again, the body may have taken a while, and the unique index still catches
+     * a race. if the insert fails the stored blob is not counted and the integrity verifier collects it.
+     * @param accreditationDTO with the document name and mime type, no content
+     * @param body
+     * @param base64 the body is base64 text rather than the document bytes
+     * @param contentLength the length of the body, -1 if not known
+     * @return
+     */
+    public AccreditationIdDTO insertAccreditation(AccreditationDTO accreditationDTO, InputStream body,
+                                                  boolean base64, long contentLength) {
         validateUserId(accreditationDTO);
         validateMimeType(accreditationDTO);
-        // this is safe to check here because the initial saving of the accreditation is done synchronously,
-        // so there is not a creation hidden in the queue. only updates are done via the queue.
-        List<Accreditation> existing = accreditationRepository.findByUserIdIs(accreditationDTO.getUserId());
-        Optional<Accreditation> pendingAccreditationForUser = findPendingAccreditation(existing);
-        if(pendingAccreditationForUser.isPresent()){
-            String pendingAccId = pendingAccreditationForUser.get().getAccreditationId();
-            logger.error("Found pending accreditation: " + pendingAccId);
-            throw new InvalidInitialStateException(pendingAccId);
-        }
+        checkNoPendingAccreditation(accreditationDTO.getUserId());
+        StoredContent content = documentContentService.storeUpload(accreditationDTO.getDocument().getMimeType(),
+                body, base64, contentLength);
+        return transactionTemplate.execute(status -> insertAccreditation(accreditationDTO,
+                doc -> documentContentService.attach(doc, content)));
+    }
+
+    private AccreditationIdDTO insertAccreditation(AccreditationDTO accreditationDTO, Consumer<Document> contentWriter) {
+        validateUserId(accreditationDTO);
+        validateMimeType(accreditationDTO);
+        checkNoPendingAccreditation(accreditationDTO.getUserId());
         // Spring managed DB transaction around these two inserts (see @Transactional)
-        Document doc = docRepository.save(buildDocument(accreditationDTO));
-        Accreditation acc = accreditationRepository.save(buildAccreditation(accreditationDTO, doc));
+        Accreditation acc = buildAccreditation(accreditationDTO, buildDocument(accreditationDTO, contentWriter));
+        try{
+            // the pipeline flushes, so the constraint is checked here and not at commit
+            accreditationWritePipeline.insertAccreditations(List.of(acc));
+        }
+        catch(RuntimeException e){
+            if(isPendingConstraintViolation(e)){
+                logger.error("Concurrent pending accreditation for user: " + accreditationDTO.getUserId());
+                throw InvalidInitialStateException.forUser(accreditationDTO.getUserId());
+            }
+            throw e;
+        }
+        userAccreditationsCache.invalidateAfterCommit(acc.getUserId());
         // save went ok, build a DTO for caller
         logger.debug("Saved new accreditation: " + acc.getAccreditationId() + " for user: " + acc.getUserId());
         AccreditationIdDTO accreditationIdDTO = new AccreditationIdDTO();
@@ -68,23 +156,100 @@ public class AccreditationService {
         return accreditationIdDTO;
     }
 
+    /**
+     * insert of one batch of a bulk load, see AccreditationBulkIngest. each record gets the same checks as a single
+     * POST, the pending check is one query for the whole batch (and a user may only appear once in it), and the
+     * accepted records are written in one transaction through the write pipeline. if a concurrent POST gets in
+     * between the check and the insert the batch is redone one record per transaction so only that record is refused.
+     * @param batch
+     * @return a result per record, in the same order
+     */
+    public List<BulkInsertResultDTO> insertAccreditationBatch(List<AccreditationDTO> batch) {
+        BulkInsertResultDTO[] results = new BulkInsertResultDTO[batch.size()];
+        Set<String> userIds = new HashSet<>();
+        for(int i = 0; i < batch.size(); i++){
+            String error = validateBulkRecord(batch.get(i));
+            if(error != null){
+                results[i] = BulkInsertResultDTO.rejected(batch.get(i).getUserId(), error);
+            }
+            else{
+                userIds.add(batch.get(i).getUserId());
+            }
+        }
+        Set<String> pendingUsers = userIds.isEmpty() ? new HashSet<>() : new HashSet<>(accreditationRepository
+                .findUserIdsByUserIdInAndStatusCode(userIds, AccreditationStatus.PENDING.getCode()));
+        List<Integer> accepted = new ArrayList<>();
+        for(int i = 0; i < batch.size(); i++){
+            if(results[i] == null){
+                // add() is false for the second record of a user in the batch too
+                if(pendingUsers.add(batch.get(i).getUserId())){
+                    accepted.add(i);
+                }
+                else{
+                    results[i] = BulkInsertResultDTO.rejected(batch.get(i).getUserId(), "User has a pending accreditation");
+                }
+            }
+        }
+        try{
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Accreditation> accs = new ArrayList<>(accepted.size());
+                for(int i : accepted){
+                    AccreditationDTO dto = batch.get(i);
+                    accs.add(buildAccreditation(dto, buildDocument(dto,
+                            doc -> documentContentService.storeContent(doc, dto.getDocument().getContent()))));
+                }
+                accreditationWritePipeline.insertAccreditations(accs);
+                for(int n = 0; n < accs.size(); n++){
+                    userAccreditationsCache.invalidateAfterCommit(accs.get(n).getUserId());
+                    results[accepted.get(n)] = BulkInsertResultDTO.created(accs.get(n).getUserId(), accs.get(n).getAccreditationId());
+                }
+            });
+        }
+        catch(RuntimeException e){
+            if(!isPendingConstraintViolation(e)){
+                throw e;
+            }
+            logger.error("Concurrent pending accreditation in bulk batch, inserting one at a time");
+            for(int i : accepted){
+                AccreditationDTO dto = batch.get(i);
+                try{
+                    AccreditationIdDTO id = transactionTemplate.execute(status -> insertAccreditation(dto,
+                            doc -> documentContentService.storeContent(doc, dto.getDocument().getContent())));
+                    results[i] = BulkInsertResultDTO.created(dto.getUserId(), id.getAccreditationId());
+                }
+                catch(InvalidInitialStateException pending){
+                    results[i] = BulkInsertResultDTO.rejected(dto.getUserId(), "User has a pending accreditation");
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
     /**
      * update the state of an accreditation, this can be done by users and also by the scheduled expiry job.
      * in this method we do not directly update the state in the database. we send an event to RabbitMQ to do
      * both the update and also to manage the status audit. since the scheduled job and this endpoint both go
      * via the queue we have reduced ordering issues by single threading the updates onto the Quartz thread.
+     * with accreditation-update-mode=sync the change is made straight away under optimistic locking instead,
+     * and the queue is only used when that keeps conflicting with other changes to the same accreditation.
      * @param accreditationId
      * @param outcomeDTO
      * @return
      */
     public AccreditationIdDTO updateAccreditation(String accreditationId,
                                                   AccreditationOutcomeDTO outcomeDTO) {
-        validateUUID(accreditationId);
+        accreditationId = validateUUID(accreditationId);
         validateOutcome(outcomeDTO);
+        AccreditationStatus targetStatus = AccreditationStatus.from(outcomeDTO.getOutcome());
+        AccreditationIdDTO dto = new AccreditationIdDTO();
+        dto.setAccreditationId(accreditationId);
+        if(SYNC_UPDATE_MODE.equals(updateMode) && updateSynchronously(accreditationId, targetStatus)){
+            logger.debug("Accreditation state change applied synchronously for accreditation: " + accreditationId);
+            return dto;
+        }
         Optional<Accreditation> saved = accreditationRepository.findById(accreditationId);
         if(saved.isPresent()){
             Accreditation current = saved.get();
-            AccreditationStatus targetStatus = AccreditationStatus.from(outcomeDTO.getOutcome());
             // FAILED is a terminal state, so this is a safe check to do in this endpoint. if a FAILED message is in the queue then we retest in receiver.
             // two users could try and CONFIRM a PENDING acc at the same time, so this cannot be checked here, it must be done via queue.
             if(current.getStatus()==AccreditationStatus.FAILED){
@@ -93,17 +258,7 @@ public class AccreditationService {
                 logger.error("Accreditation already failed, cannot change state further: " + current.getAccreditationId());
                 throw new InvalidStateChangeException(accreditationId, current.getStatus(), targetStatus);
             }
-            current.setStatus(targetStatus);
-            try{
-                // if the message is queued, its considered done although there can be a race condition with GET (see readme)
-                rabbitMQSender.send(current);
-                logger.debug("Accreditation state change event sent to RabbitMQ for accreditation: " + current.getAccreditationId());
-            }
-            catch(Exception e){
-                throw new AccreditationNotUpdatedException(accreditationId);
-            }
-            AccreditationIdDTO dto = new AccreditationIdDTO();
-            dto.setAccreditationId(accreditationId);
+            queueStateChange(accreditationId, targetStatus);
             return dto;
         }
         else{
@@ -111,6 +266,141 @@ public class AccreditationService {
         }
     }
 
+    /**
+     * sync mode: the state change is made here and now, without the queue. the accreditation is reloaded, checked
+     * against the state machine and saved with its history in one transaction. the update is conditional on the version
+     * that was loaded, so if anything else (another PUT, the queue receiver, expiry) changed it in the meantime the
+     * commit fails and we start again from the fresh state, a bounded number of times.
+     * @return false if we kept losing the race, the caller then hands it to the queue which serialises the updates
+     */
+    private boolean updateSynchronously(String accreditationId, AccreditationStatus targetStatus) {
+        for(int attempt = 1; attempt <= syncUpdateAttempts; attempt++){
+            try{
+                transactionTemplate.executeWithoutResult(status -> applyStateChange(accreditationId, targetStatus));
+                return true;
+            }
+            catch(OptimisticLockingFailureException e){
+                logger.debug("Concurrent change of accreditation " + accreditationId + " on attempt " + attempt);
+            }
+        }
+        logger.debug("Accreditation contended, falling back to the queue: " + accreditationId);
+        meterRegistry.counter("accreditation.update.sync.fallback").increment();
+        return false;
+    }
+
+    private void applyStateChange(String accreditationId, AccreditationStatus targetStatus) {
+        Accreditation current = accreditationRepository.findById(accreditationId)
+                .orElseThrow(() -> new AccreditationNotFoundException(accreditationId));
+        AccreditationStatus currentStatus = current.getStatus();
+        AccreditationHistory accHistory = accreditationStateMachine.transition(current, targetStatus, System.currentTimeMillis());
+        if(accHistory == null){
+            // unlike the queue we can tell the caller straight away
+            throw new InvalidStateChangeException(accreditationId, currentStatus, targetStatus);
+        }
+        accreditationHistoryRepository.save(accHistory);
+        // flushed here so a version conflict shows up as an exception inside the retry loop
+        accreditationRepository.saveAndFlush(current);
+    }
+
+    /**
+     * outcomes for many accreditations at once, for admins working through a review session. each item gets the checks
+     * of a single PUT, but the current states come from one findAllById and the accepted changes are published
+     * together and confirmed one by one. the changes always go via the queue, accreditation-update-mode=sync is for the single PUT.
+     * an item which fails a check does not stop the others, its result says why with the status a single PUT
+     * would have given.
+     * @param outcomes
+     * @return a result per item, in the same order
+     */
+    public List<BulkOutcomeResultDTO> updateAccreditations(List<BulkOutcomeDTO> outcomes) {
+        if(outcomes.size() > maxBulkOutcomes){
+            throw new BatchSizeExceededException(outcomes.size(), maxBulkOutcomes);
+        }
+        BulkOutcomeResultDTO[] results = new BulkOutcomeResultDTO[outcomes.size()];
+        // the ids in canonical form, as the database and the partitioner see them
+        String[] canonicalIds = new String[outcomes.size()];
+        Set<String> ids = new HashSet<>();
+        for(int i = 0; i < outcomes.size(); i++){
+            BulkOutcomeDTO outcome = outcomes.get(i);
+            String id = outcome.getAccreditationId();
+            try{
+                id = validateUUID(id);
+                canonicalIds[i] = id;
+                validateOutcome(new AccreditationOutcomeDTO(outcome.getOutcome()));
+            }
+            catch(InvalidIdFormatException e){
+                results[i] = BulkOutcomeResultDTO.rejected(id, 400, "Invalid accreditation id");
+                continue;
+            }
+            catch(InvalidOutcomeException e){
+                results[i] = BulkOutcomeResultDTO.rejected(id, 400, "Invalid outcome: " + outcome.getOutcome());
+                continue;
+            }
+            // two outcomes for one accreditation would race each other on the queue, however the id is spelled
+            if(!ids.add(id)){
+                results[i] = BulkOutcomeResultDTO.rejected(id, 400, "Accreditation is in the batch more than once");
+            }
+        }
+        Map<String, AccreditationStatus> current = new HashMap<>();
+        for(Accreditation acc : accreditationRepository.findAllById(ids)){
+            current.put(acc.getAccreditationId(), acc.getStatus());
+        }
+        List<AccreditationStateChangeEvent> events = new ArrayList<>();
+        List<Integer> accepted = new ArrayList<>();
+        for(int i = 0; i < outcomes.size(); i++){
+            if(results[i] != null){
+                continue;
+            }
+            String id = canonicalIds[i];
+            AccreditationStatus status = current.get(id);
+            AccreditationStatus targetStatus = AccreditationStatus.from(outcomes.get(i).getOutcome());
+            if(status == null){
+                results[i] = BulkOutcomeResultDTO.rejected(id, 404, "Accreditation not found");
+            }
+            // FAILED is terminal, as for the single PUT anything else is left to the receiver
+            else if(status == AccreditationStatus.FAILED){
+                results[i] = BulkOutcomeResultDTO.rejected(id, 405,
+                        new InvalidStateChangeException(id, status, targetStatus).getChange());
+            }
+            else{
+                events.add(new AccreditationStateChangeEvent(id, targetStatus, AccreditationStateChangeEvent.Source.API));
+                accepted.add(i);
+            }
+        }
+        // one future per event, so only the ones the broker did not confirm are reported as failed
+        List<CompletableFuture<Void>> sent = rabbitMQSender.sendAllAsync(events);
+        int failed = 0;
+        for(int j = 0; j < sent.size(); j++){
+            int i = accepted.get(j);
+            String id = canonicalIds[i];
+            try{
+                sent.get(j).join();
+                results[i] = BulkOutcomeResultDTO.accepted(id);
+            }
+            catch(CompletionException e){
+                // sending it again is safe since the receiver checks every transition
+                failed++;
+                results[i] = BulkOutcomeResultDTO.rejected(id, 503, "State change could not be queued, try again");
+            }
+        }
+        if(failed > 0){
+            logger.error("Bulk accreditation state change could not be queued for " + failed + " of " + sent.size() + " accreditations");
+        }
+        logger.debug("Accreditation state change events sent to RabbitMQ for " + (sent.size() - failed) + " accreditations");
+        return Arrays.asList(results);
+    }
+
+    private void queueStateChange(String accreditationId, AccreditationStatus targetStatus) {
+        try{
+            // once the broker has confirmed the message its considered done, although there can be a race condition with GET (see readme)
+            rabbitMQSender.send(new AccreditationStateChangeEvent(accreditationId, targetStatus,
+                    AccreditationStateChangeEvent.Source.API));
+            logger.debug("Accreditation state change event sent to RabbitMQ for accreditation: " + accreditationId);
+        }
+        catch(Exception e){
+            throw new AccreditationNotUpdatedException(accreditationId);
+        }
+    }
+
     /**
      * there can be a race condition between this GET and an accreditation status change which is on the queue but not yet processed.
      * in the current implementation there is nothing to deal with that. we could cache the updated accreditation in service before
@@ -118,51 +408,189 @@ public class AccreditationService {
      * version of the accreditation and RabbitMQ would update the persisted state sometime later. This would be non-trivial to implement.
      * If the data is not critical then some systems live with the race condition and perhaps use a version number to optimistically lock
      * so updates on a stale version are not possible. This is life in a real time system.
+     * the result is cached per user, the cache is invalidated once a state change is committed so it does not
+     * widen that window (see UserAccreditationsCache).
      * @param userId
      * @return
      */
     public UserAccreditationsDTO getUserAccreditations(String userId) {
-        Map<String, AccreditationTypeAndStatusDTO> dtos = new HashMap<>();
-        List<Accreditation> accs = accreditationRepository.findByUserIdIs(userId);
-        for(Accreditation acc : accs){
-            dtos.put(acc.getAccreditationId(), new AccreditationTypeAndStatusDTO(acc.getStatus().name(), acc.getType().name()));
+        return userAccreditationsCache.get(userId, this::loadUserAccreditations);
+    }
+
+    /**
+     * the client GET for many users at once. cached users come from the cache, the rest are read with one
+     * IN query on the user index through the status projection, so no document is loaded.
+     * @param userIds
+     * @return
+     */
+    public UserAccreditationsLookupDTO lookupUserAccreditations(List<String> userIds) {
+        Set<String> distinct = new LinkedHashSet<>(userIds == null ? List.of() : userIds);
+        distinct.remove(null);
+        if(distinct.size() > maxLookupUsers){
+            throw new BatchSizeExceededException(distinct.size(), maxLookupUsers);
         }
-        UserAccreditationsDTO userAccreditationsDTO = new UserAccreditationsDTO(userId, dtos);
-        return userAccreditationsDTO;
+        Map<String, UserAccreditationsDTO> loaded = distinct.isEmpty() ? Map.of()
+                : userAccreditationsCache.getAll(distinct, this::loadUserAccreditations);
+        Map<String, UserAccreditationsDTO> users = new LinkedHashMap<>();
+        List<String> notFound = new ArrayList<>();
+        for(String userId : distinct){
+            UserAccreditationsDTO dto = loaded.get(userId);
+            if(dto == null || dto.getAccreditationStatuses().isEmpty()){
+                notFound.add(userId);
+            }
+            else{
+                users.put(userId, dto);
+            }
+        }
+        return new UserAccreditationsLookupDTO(users, notFound);
     }
 
     /**
-     * not a required end point but i added it in because it was useful in testing
+     * the document behind an accreditation, ready to be streamed. nothing of the content is read here.
+     * documents whose content has not been moved to the document store yet are treated as not there.
      * @param accreditationId
      * @return
      */
-    public AccreditationHistoricTypeAndStatusDTO[] getAccreditationHistories(String accreditationId) {
-        Optional<Accreditation> current = accreditationRepository.findById(accreditationId);
-        List<AccreditationHistoricTypeAndStatusDTO> dtos = new Vector<>();
-        if(current.isPresent()){
-            Accreditation acc = current.get();
-            List<AccreditationHistory> accs = accreditationHistoryRepository.findByAccreditationIdIs(accreditationId);
-            for(AccreditationHistory accHistory : accs){
-                Accreditation temp = new Accreditation();
-                temp.setStatus(accHistory.getOldStatus());
-                temp.setAccreditationId(acc.getAccreditationId());
-                temp.setType(acc.getType());
-                temp.setLastUpdateTime(accHistory.getLastUpdateTime());
-                dtos.add(new AccreditationHistoricTypeAndStatusDTO(temp.getStatus().name(), temp.getType().name(), temp.getLastUpdateTime()));
+    @Transactional(readOnly = true)
+    public DocumentDownload getAccreditationDocument(String accreditationId) {
+        String id = validateUUID(accreditationId);
+        Document doc = accreditationRepository.findDocumentByAccreditationId(id)
+                .filter(d -> d.getContentHash() != null)
+                .orElseThrow(() -> new AccreditationNotFoundException(id));
+        return documentContentService.download(doc);
+    }
+
+    /**
+     * not a required end point but i added it in because it was useful in testing.
+     * one page of the history in time order, from one join query (see AccreditationHistoryRepository).
+     * a client which gives neither a cursor nor a limit gets the whole history, as it did before there were pages.
+     * @param accreditationId
+     * @param cursor from the previous page, null for the first
+     * @param limit page size, null for accreditation-history-page-size
+     * @return
+     */
+    public AccreditationHistoryPage getAccreditationHistories(String accreditationId, String cursor, Integer limit) {
+        accreditationId = validateUUID(accreditationId);
+        if(cursor == null && limit == null){
+            List<AccreditationHistoricTypeAndStatusDTO> all = new ArrayList<>();
+            readHistoriesAfter(accreditationId, HistoryCursor.START, all::add);
+            return new AccreditationHistoryPage(all.toArray(new AccreditationHistoricTypeAndStatusDTO[0]), null);
+        }
+        int pageSize = limit == null ? historyPageSize : Math.max(1, Math.min(limit, maxHistoryPageSize));
+        HistoryCursor after = HistoryCursor.parse(cursor);
+        // one over the page size tells us whether there is a next page
+        List<AccreditationHistoryView> rows = accreditationHistoryRepository.findHistoryAfter(accreditationId,
+                after.lastUpdateTime(), after.historyId(), Limit.of(pageSize + 1));
+        int size = Math.min(rows.size(), pageSize);
+        AccreditationHistoricTypeAndStatusDTO[] dtos = new AccreditationHistoricTypeAndStatusDTO[size];
+        for(int i = 0; i < size; i++){
+            dtos[i] = toHistoryDTO(rows.get(i));
+        }
+        String nextCursor = rows.size() > pageSize ? HistoryCursor.of(rows.get(size - 1)).format() : null;
+        return new AccreditationHistoryPage(dtos, nextCursor);
+    }
+
+    /**
+     * the whole history from the cursor on, handed to the consumer row by row. it is read in keyset pages of
+     * accreditation-history-max-page-size, each query on its own, so no connection or transaction is held while
+     * the consumer writes to a client which may be slow to read.
+     * @param accreditationId
+     * @param cursor null for the start
+     * @param consumer
+     */
+    public void streamAccreditationHistories(String accreditationId, String cursor,
+                                             Consumer<AccreditationHistoricTypeAndStatusDTO> consumer) {
+        accreditationId = validateUUID(accreditationId);
+        readHistoriesAfter(accreditationId, HistoryCursor.parse(cursor), consumer);
+    }
+
+    private void readHistoriesAfter(String accreditationId, HistoryCursor after,
+                                    Consumer<AccreditationHistoricTypeAndStatusDTO> consumer) {
+        List<AccreditationHistoryView> page;
+        do{
+            page = accreditationHistoryRepository.findHistoryAfter(accreditationId,
+                    after.lastUpdateTime(), after.historyId(), Limit.of(maxHistoryPageSize));
+            for(AccreditationHistoryView row : page){
+                consumer.accept(toHistoryDTO(row));
+            }
+            if(!page.isEmpty()){
+                after = HistoryCursor.of(page.get(page.size() - 1));
             }
+        } while(page.size() == maxHistoryPageSize);
+    }
+
+    private AccreditationHistoricTypeAndStatusDTO toHistoryDTO(AccreditationHistoryView row) {
+        return new AccreditationHistoricTypeAndStatusDTO(AccreditationStatus.valueOf(row.getStatusCode()).name(),
+                AccreditationType.valueOf(row.getTypeCode()).name(), row.getLastUpdateTime());
+    }
+
+    /**
+     * the keyset position in a history, passed to clients as an opaque string
+     */
+    private record HistoryCursor(long lastUpdateTime, String historyId) {
+
+        static final HistoryCursor START = new HistoryCursor(-1, UuidBinaryType.MIN_ID);
+
+        static HistoryCursor of(AccreditationHistoryView row) {
+            return new HistoryCursor(row.getLastUpdateTime(), row.getAccreditationHistoryId());
+        }
+
+        static HistoryCursor parse(String cursor) {
+            if(cursor == null || cursor.isEmpty()){
+                return START;
+            }
+            try{
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split("_", 2);
+                return new HistoryCursor(Long.parseLong(parts[0]), UUID.fromString(parts[1]).toString());
+            }
+            catch(RuntimeException e){
+                throw new InvalidCursorException(cursor);
+            }
+        }
+
+        String format() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((lastUpdateTime + "_" + historyId).getBytes(StandardCharsets.US_ASCII));
         }
-        return dtos.toArray(new AccreditationHistoricTypeAndStatusDTO[]{});
     }
 
     /**
      * helpers follow
      */
 
-    private Document buildDocument(AccreditationDTO accreditationDTO){
+    private Map<String, UserAccreditationsDTO> loadUserAccreditations(Set<String> userIds) {
+        Map<String, Map<String, AccreditationTypeAndStatusDTO>> byUser = new HashMap<>();
+        for(String userId : userIds){
+            byUser.put(userId, new HashMap<>());
+        }
+        for(UserAccreditationStatusView acc : accreditationRepository.findStatusesByUserIdIn(userIds)){
+            byUser.get(acc.getUserId()).put(acc.getAccreditationId(), new AccreditationTypeAndStatusDTO(
+                    AccreditationStatus.valueOf(acc.getStatusCode()).name(), AccreditationType.valueOf(acc.getTypeCode()).name()));
+        }
+        Map<String, UserAccreditationsDTO> dtos = new HashMap<>();
+        byUser.forEach((userId, statuses) -> dtos.put(userId, new UserAccreditationsDTO(userId, statuses)));
+        return dtos;
+    }
+
+    private UserAccreditationsDTO loadUserAccreditations(String userId) {
+        Map<String, AccreditationTypeAndStatusDTO> dtos = new HashMap<>();
+        List<AccreditationStatusView> accs = accreditationRepository.findStatusesByUserId(userId);
+        for(AccreditationStatusView acc : accs){
+            dtos.put(acc.getAccreditationId(), new AccreditationTypeAndStatusDTO(
+                    AccreditationStatus.valueOf(acc.getStatusCode()).name(), AccreditationType.valueOf(acc.getTypeCode()).name()));
+        }
+        UserAccreditationsDTO userAccreditationsDTO = new UserAccreditationsDTO(userId, dtos);
+        return userAccreditationsDTO;
+    }
+
+    /**
+     * the content goes to the DocumentStore, only its hash and size are kept on the document
+     */
+    private Document buildDocument(AccreditationDTO accreditationDTO, Consumer<Document> contentWriter){
         Document doc = new Document();
-        doc.setContent(accreditationDTO.getDocument().getContent());
         doc.setMimeType(accreditationDTO.getDocument().getMimeType());
         doc.setName(accreditationDTO.getDocument().getName());
+        contentWriter.accept(doc);
         return doc;
     }
 
@@ -175,24 +603,43 @@ public class AccreditationService {
         return acc;
     }
 
-    private Optional<Accreditation> findPendingAccreditation(List<Accreditation> accreditations){
-        if(!accreditations.isEmpty()){
-            for(Accreditation acc: accreditations){
-                if(acc.getStatus()==AccreditationStatus.PENDING){
-                    return Optional.of(acc);
-                }
+    /**
+     * this is safe to check here because the initial saving of the accreditation is done synchronously,
+     * so there is not a creation hidden in the queue. only updates are done via the queue.
+     * one index probe, the unique pending_user_id index (see db/migration) catches a concurrent POST which gets past it
+     */
+    private void checkNoPendingAccreditation(String userId){
+        List<String> pending = accreditationRepository.findIdsByUserIdAndStatusCode(userId,
+                AccreditationStatus.PENDING.getCode(), Limit.of(1));
+        if(!pending.isEmpty()){
+            logger.error("Found pending accreditation: " + pending.get(0));
+            throw new InvalidInitialStateException(pending.get(0));
+        }
+    }
+
+    private static boolean isPendingConstraintViolation(Throwable e){
+        for(Throwable cause = e; cause != null; cause = cause.getCause()){
+            if(cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().endsWith(PENDING_CONSTRAINT)){
+                return true;
             }
         }
-        return Optional.empty();
+        return false;
     }
 
     /**
      * validation methods follow
      */
 
-    private void validateUUID(String id){
+    /**
+     * UUID.fromString also takes upper case and short forms like 1-1-1-1-1, and the database finds the same row
+     * for all of them. the partition is picked from the id string, so everything after this uses the canonical form
+     * or two spellings of one accreditation would be applied on different partitions at once.
+     * @return the id in canonical (lower case, full length) form
+     */
+    private String validateUUID(String id){
         try{
-            UUID.fromString(id);
+            return UUID.fromString(id).toString();
         }
         catch(Exception e){
             throw new InvalidIdFormatException(id);
@@ -212,6 +659,35 @@ public class AccreditationService {
         // TODO we should have a User entity in the database to check against
     }
 
+    /**
+     * the single insert checks, but as a reason rather than an exception so one bad record does not stop a bulk load
+     */
+    private String validateBulkRecord(AccreditationDTO accreditation){
+        if(accreditation.getUserId() == null || accreditation.getUserId().isBlank()){
+            return "Missing user_id";
+        }
+        if(accreditation.getType() == null){
+            return "Missing accreditation_type";
+        }
+        if(accreditation.getDocument() == null){
+            return "Missing document";
+        }
+        try{
+            validateUserId(accreditation);
+            validateMimeType(accreditation);
+        }
+        catch(InvalidMimeTypeException e){
+            return "Invalid MIME type: " + e.getMimeType();
+        }
+        try{
+            documentContentService.checkContentSize(accreditation.getDocument().getContent());
+        }
+        catch(DocumentTooLargeException e){
+            return "Document is larger than " + e.getMaxBytes() + " bytes";
+        }
+        return null;
+    }
+
     private void validateMimeType(AccreditationDTO accreditation){
         try{
             MimeType.valueOf(accreditation.getDocument().getMimeType());
@@ -0,0 +1,84 @@
+package com.yieldstreet.service;
+
+import com.yieldstreet.entity.Accreditation;
+import com.yieldstreet.entity.AccreditationHistory;
+import com.yieldstreet.entity.AccreditationStatus;
+import com.yieldstreet.expiry.ExpiryEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * the state machine, and the one place a state change is applied to an accreditation. both the queue receiver
+ * and the synchronous PUT (see accreditation-update-mode) go through here so they cannot drift apart.
+ * it must be called inside a DB transaction, the cache and expiry engine only hear about a change once it commits.
+ */
+@Component
+public class AccreditationStateMachine {
+    private static Logger logger = LoggerFactory.getLogger(AccreditationStateMachine.class);
+
+    @Autowired
+    private ExpiryEngine expiryEngine;
+
+    @Autowired
+    private UserAccreditationsCache userAccreditationsCache;
+
+    /**
+     * this is the only place allowed transitions are defined.
+     * we ignore loopback transitions to avoid polluting the history.
+     */
+    public static boolean isValidTransition(AccreditationStatus currentStatus, AccreditationStatus targetStatus) {
+        return  (currentStatus!=AccreditationStatus.FAILED && targetStatus==AccreditationStatus.FAILED) ||
+                (currentStatus==AccreditationStatus.PENDING && targetStatus==AccreditationStatus.CONFIRMED) ||
+                (currentStatus==AccreditationStatus.CONFIRMED && targetStatus==AccreditationStatus.EXPIRED);
+    }
+
+    /**
+     * applies the transition to the loaded accreditation if the state machine allows it, rather than saving the one
+     * off the queue, so nothing on the message other than the target status can overwrite what is persisted.
+     * @return the history row recording the old status, or null if the transition was ignored
+     */
+    public AccreditationHistory transition(Accreditation accCurrent, AccreditationStatus targetStatus, long now) {
+        String accreditationId = accCurrent.getAccreditationId();
+        AccreditationStatus currentStatus = accCurrent.getStatus();
+        if(!isValidTransition(currentStatus, targetStatus)){
+            // log ignored transition for the accreditation_id
+            logger.error("No state change was possible for accreditation "+ accreditationId
+                        + ", Current state "+ currentStatus.name()
+                        + ", Target state "+ targetStatus.name());
+            return null;
+        }
+        // the history table has the old statuses, the accreditation table always has the latest
+        // accreditation status - latest and history are linked by the accreditation_id and the timestamp
+        AccreditationHistory accHistory = new AccreditationHistory();
+        accHistory.setLastUpdateTime(now);
+        accHistory.setAccreditationId(accreditationId);
+        accHistory.setOldStatus(currentStatus);
+        accCurrent.setStatus(targetStatus);
+        accCurrent.setLastUpdateTime(now);
+        userAccreditationsCache.invalidateAfterCommit(accCurrent.getUserId());
+        // the expiry engine only hears about it once the transition is committed
+        if(targetStatus==AccreditationStatus.CONFIRMED){
+            afterCommit(() -> expiryEngine.schedule(accreditationId, now));
+            logger.debug("Scheduled expiry of confirmed accreditation after period of inactivity exceeded: "+
+                    accreditationId);
+        }
+        else if(currentStatus==AccreditationStatus.CONFIRMED){
+            afterCommit(() -> expiryEngine.cancel(accreditationId));
+        }
+        return accHistory;
+    }
+
+    private void afterCommit(Runnable action){
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+}
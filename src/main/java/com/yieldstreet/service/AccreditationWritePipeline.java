@@ -0,0 +1,70 @@
+package com.yieldstreet.service;
+
+import com.yieldstreet.entity.Accreditation;
+import com.yieldstreet.entity.AccreditationHistory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * every write of accreditations and their history goes through here so that it is JDBC batched.
+ * Hibernate only batches statements it has queued up, so we persist a whole batch and then flush it,
+ * with hibernate.order_inserts/order_updates grouping the statements per table (see application.properties).
+ * the flush interval is the JDBC batch size so each flush is one batch per table, and MySQL rewrites
+ * each batch into a single multi-row statement when rewriteBatchedStatements is on.
+ *
+ * these methods must be called inside the caller's transaction.
+ */
+@Component
+public class AccreditationWritePipeline {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    /**
+     * inserts new accreditations along with their documents. the persistence context is cleared after each
+     * flush so a large insert does not grow it without bound, the accreditations passed in then become detached
+     * but they have their generated ids.
+     * @param accreditations
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void insertAccreditations(List<Accreditation> accreditations) {
+        int pending = 0;
+        for(Accreditation acc : accreditations){
+            entityManager.persist(acc.getDocument());
+            entityManager.persist(acc);
+            if(++pending % batchSize == 0){
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+    }
+
+    /**
+     * inserts the history rows for a set of state changes which have already been applied to managed accreditations,
+     * the accreditation updates are flushed in the same batches. nothing is cleared since the caller still holds the
+     * managed accreditations.
+     * @param histories
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransitions(List<AccreditationHistory> histories) {
+        int pending = 0;
+        for(AccreditationHistory history : histories){
+            entityManager.persist(history);
+            if(++pending % batchSize == 0){
+                entityManager.flush();
+            }
+        }
+        entityManager.flush();
+    }
+
+}
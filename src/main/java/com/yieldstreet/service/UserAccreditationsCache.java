@@ -0,0 +1,172 @@
+package com.yieldstreet.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yieldstreet.dto.UserAccreditationsDTO;
+import com.yieldstreet.rabbit.RabbitMQSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * read-through cache of the client facing GET, one entry per user, bounded by size and by time since it was loaded.
+ * hits, misses and evictions are published as the cache.* metrics with cache=userAccreditations.
+ *
+ * the cache must not make the stale GET window (see readme) any wider, so:
+ *   entries are invalidated as soon as a state change or insert is committed, never before
+ *   every instance is told about the invalidation via a fanout exchange, since the receiver may be on another node
+ *   a load which raced with an invalidation is never left in the cache, see the generation check in get()
+ *
+ * that only holds on the instance which made the change. the fanout message is not confirmed or retried, so if it is
+ * lost (broker down, the other instance not listening at the time) the other instances keep serving the old entry
+ * until it expires. so the cache is off unless accreditation-cache-enabled is set, which is only safe on a single
+ * instance deployment, there the invalidation never has to leave the process.
+ */
+@Component
+public class UserAccreditationsCache {
+    private static Logger logger = LoggerFactory.getLogger(UserAccreditationsCache.class);
+    private static final int GENERATION_STRIPES = 1024;
+
+    @Value("${accreditation-cache-enabled:false}")
+    private boolean enabled;
+
+    @Value("${accreditation-cache-max-size:100000}")
+    private long maxSize;
+
+    @Value("${accreditation-cache-ttl-millis:5000}")
+    private long ttlMillis;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RabbitMQSender rabbitMQSender;
+
+    private Cache<String, UserAccreditationsDTO> cache;
+    // bumped on every invalidation, striped by user so it stays bounded
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @PostConstruct
+    void init(){
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userAccreditations");
+    }
+
+    /**
+     * @param userId
+     * @param loader reads the accreditations for the user from the database on a miss
+     * @return
+     */
+    public UserAccreditationsDTO get(String userId, Function<String, UserAccreditationsDTO> loader){
+        if(!enabled){
+            return loader.apply(userId);
+        }
+        UserAccreditationsDTO cached = cache.getIfPresent(userId);
+        if(cached != null){
+            return cached;
+        }
+        long generation = generations.get(stripe(userId));
+        UserAccreditationsDTO loaded = loader.apply(userId);
+        cache.put(userId, loaded);
+        // if an invalidation happened while we were loading, what we loaded may predate it so dont keep it
+        if(generations.get(stripe(userId)) != generation){
+            cache.invalidate(userId);
+        }
+        return loaded;
+    }
+
+    /**
+     * the batch version of get, the users which are not cached are loaded together with one call to the loader
+     * @param userIds
+     * @param loader reads the accreditations for all the users it is given, with an entry for every one of them
+     * @return an entry for every user
+     */
+    public Map<String, UserAccreditationsDTO> getAll(Set<String> userIds,
+                                                     Function<Set<String>, Map<String, UserAccreditationsDTO>> loader){
+        if(!enabled){
+            return loader.apply(userIds);
+        }
+        Map<String, UserAccreditationsDTO> result = new HashMap<>(cache.getAllPresent(userIds));
+        Map<String, Long> missing = new HashMap<>();
+        for(String userId : userIds){
+            if(!result.containsKey(userId)){
+                missing.put(userId, generations.get(stripe(userId)));
+            }
+        }
+        if(missing.isEmpty()){
+            return result;
+        }
+        Map<String, UserAccreditationsDTO> loaded = loader.apply(missing.keySet());
+        cache.putAll(loaded);
+        // as in get(), drop anything which an invalidation raced with
+        for(Map.Entry<String, Long> entry : missing.entrySet()){
+            if(generations.get(stripe(entry.getKey())) != entry.getValue()){
+                cache.invalidate(entry.getKey());
+            }
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * drop the entry for the user on this instance only, this is what the fanout listener calls
+     * @param userId
+     */
+    public void invalidate(String userId){
+        generations.incrementAndGet(stripe(userId));
+        cache.invalidate(userId);
+    }
+
+    /**
+     * drop the entry for the user on every instance, once the current transaction has committed.
+     * outside a transaction this happens straight away.
+     * @param userId
+     */
+    public void invalidateAfterCommit(String userId){
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateEverywhere(userId);
+                }
+            });
+        }
+        else{
+            invalidateEverywhere(userId);
+        }
+    }
+
+    private void invalidateEverywhere(String userId){
+        invalidate(userId);
+        try{
+            rabbitMQSender.sendCacheInvalidation(userId);
+        }
+        catch(Exception e){
+            // the other instances only catch up when their entry reaches its TTL
+            logger.error("Could not broadcast cache invalidation for user: " + userId, e);
+        }
+    }
+
+    private int stripe(String userId){
+        return Math.floorMod(userId.hashCode(), GENERATION_STRIPES);
+    }
+
+}
@@ -0,0 +1,68 @@
+-- the schema as hibernate ddl-auto=update used to create it, plus the indexes every repository query needs.
+-- everything is conditional so this also runs cleanly against a database that ddl-auto already built
+-- (flyway baselines those at version 0, see application.properties).
+
+CREATE TABLE IF NOT EXISTS document (
+    id varchar(255) NOT NULL,
+    name varchar(255),
+    mime_type varchar(255),
+    content varchar(255),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS accreditation (
+    accreditation_id varchar(255) NOT NULL,
+    user_id varchar(255),
+    type integer NOT NULL,
+    status integer NOT NULL,
+    document_id varchar(255),
+    last_update_time bigint NOT NULL,
+    version bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (accreditation_id),
+    CONSTRAINT uk_accreditation_document UNIQUE (document_id),
+    CONSTRAINT fk_accreditation_document FOREIGN KEY (document_id) REFERENCES document (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS accreditation_history (
+    accreditation_history_id varchar(255) NOT NULL,
+    accreditation_id varchar(255),
+    last_update_time bigint NOT NULL,
+    old_status integer NOT NULL,
+    PRIMARY KEY (accreditation_history_id)
+) ENGINE=InnoDB;
+
+-- databases built before the optimistic locking change have no version column
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'accreditation' AND column_name = 'version') = 0,
+              'ALTER TABLE accreditation ADD COLUMN version bigint NOT NULL DEFAULT 0',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- GET /user/{userId}/accreditation and the pending check on POST, covering for the status projection
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'accreditation' AND index_name = 'idx_accreditation_user_status') = 0,
+              'CREATE INDEX idx_accreditation_user_status ON accreditation (user_id, status, type)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- expiry sweeper and timing wheel rebuild, keyset scan of one status by age
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'accreditation' AND index_name = 'idx_accreditation_status_time') = 0,
+              'CREATE INDEX idx_accreditation_status_time ON accreditation (status, last_update_time)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- GET /user/history/{accreditationId}, in time order
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'accreditation_history' AND index_name = 'idx_history_accreditation_time') = 0,
+              'CREATE INDEX idx_history_accreditation_time ON accreditation_history (accreditation_id, last_update_time)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,31 @@
+-- at most one PENDING accreditation per user, enforced by the database so concurrent POSTs cannot both get in.
+-- pending_user_id is the user_id while the accreditation is PENDING (status 1) and NULL otherwise, and a unique
+-- index allows any number of NULLs. it is a virtual column so it costs nothing but the index entry.
+
+-- databases written before this could already hold several PENDING accreditations for a user (the check on POST was
+-- racy), and the constraint would refuse to go on. the newest one is kept and the older ones are FAILED (status 4)
+-- the way an admin PUT would, with a history row saying they were PENDING. see the readme for finding them afterwards.
+SET @resolved_at = CAST(UNIX_TIMESTAMP(NOW(3)) * 1000 AS SIGNED);
+
+INSERT INTO accreditation_history (accreditation_history_id, accreditation_id, last_update_time, old_status)
+SELECT UUID(), older.accreditation_id, @resolved_at, 1
+FROM accreditation older
+WHERE older.status = 1
+  AND EXISTS (SELECT 1 FROM accreditation newer
+              WHERE newer.user_id = older.user_id AND newer.status = 1
+                AND (newer.last_update_time > older.last_update_time
+                     OR (newer.last_update_time = older.last_update_time AND newer.accreditation_id > older.accreditation_id)));
+
+-- mysql will not update a table it reads in a subquery, the DISTINCT makes it collect the ids in a derived table first
+UPDATE accreditation a
+JOIN (SELECT DISTINCT older.accreditation_id
+      FROM accreditation older
+      JOIN accreditation newer ON newer.user_id = older.user_id AND newer.status = 1
+          AND (newer.last_update_time > older.last_update_time
+               OR (newer.last_update_time = older.last_update_time AND newer.accreditation_id > older.accreditation_id))
+      WHERE older.status = 1) duplicate ON duplicate.accreditation_id = a.accreditation_id
+SET a.status = 4, a.last_update_time = @resolved_at, a.version = a.version + 1;
+
+ALTER TABLE accreditation
+    ADD COLUMN pending_user_id varchar(255) GENERATED ALWAYS AS (IF(status = 1, user_id, NULL)) VIRTUAL,
+    ADD CONSTRAINT uk_accreditation_pending_user UNIQUE (pending_user_id);
@@ -0,0 +1,56 @@
+-- ids move from 36 character strings to BINARY(16), see UuidBinaryType. the existing string ids are all UUIDs
+-- so they convert with UNHEX(REPLACE(id, '-', '')) and keep their value, anything holding one keeps working.
+-- each column is copied into a new binary column which then takes the old ones place, the keys and indexes
+-- which used the old column are put back on the new one.
+
+-- the foreign key from accreditation to document has a hibernate generated name on databases made by ddl-auto
+SET @fk = (SELECT constraint_name FROM information_schema.referential_constraints
+           WHERE constraint_schema = DATABASE() AND table_name = 'accreditation' AND referenced_table_name = 'document'
+           LIMIT 1);
+SET @ddl = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE accreditation DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- document
+ALTER TABLE document ADD COLUMN id_bin BINARY(16);
+UPDATE document SET id_bin = UNHEX(REPLACE(id, '-', ''));
+ALTER TABLE document
+    MODIFY id_bin BINARY(16) NOT NULL,
+    DROP PRIMARY KEY,
+    DROP COLUMN id,
+    ADD PRIMARY KEY (id_bin);
+ALTER TABLE document RENAME COLUMN id_bin TO id;
+
+-- accreditation, dropping document_id drops its unique key along with it
+ALTER TABLE accreditation ADD COLUMN accreditation_id_bin BINARY(16), ADD COLUMN document_id_bin BINARY(16);
+UPDATE accreditation SET accreditation_id_bin = UNHEX(REPLACE(accreditation_id, '-', '')),
+                         document_id_bin = UNHEX(REPLACE(document_id, '-', ''));
+ALTER TABLE accreditation
+    MODIFY accreditation_id_bin BINARY(16) NOT NULL,
+    DROP PRIMARY KEY,
+    DROP COLUMN accreditation_id,
+    DROP COLUMN document_id,
+    ADD PRIMARY KEY (accreditation_id_bin);
+ALTER TABLE accreditation
+    RENAME COLUMN accreditation_id_bin TO accreditation_id,
+    RENAME COLUMN document_id_bin TO document_id;
+ALTER TABLE accreditation
+    ADD CONSTRAINT uk_accreditation_document UNIQUE (document_id),
+    ADD CONSTRAINT fk_accreditation_document FOREIGN KEY (document_id) REFERENCES document (id);
+
+-- accreditation_history, the history index would otherwise lose its leading column
+DROP INDEX idx_history_accreditation_time ON accreditation_history;
+ALTER TABLE accreditation_history ADD COLUMN accreditation_history_id_bin BINARY(16), ADD COLUMN accreditation_id_bin BINARY(16);
+UPDATE accreditation_history SET accreditation_history_id_bin = UNHEX(REPLACE(accreditation_history_id, '-', '')),
+                                 accreditation_id_bin = UNHEX(REPLACE(accreditation_id, '-', ''));
+ALTER TABLE accreditation_history
+    MODIFY accreditation_history_id_bin BINARY(16) NOT NULL,
+    DROP PRIMARY KEY,
+    DROP COLUMN accreditation_history_id,
+    DROP COLUMN accreditation_id,
+    ADD PRIMARY KEY (accreditation_history_id_bin);
+ALTER TABLE accreditation_history
+    RENAME COLUMN accreditation_history_id_bin TO accreditation_history_id,
+    RENAME COLUMN accreditation_id_bin TO accreditation_id;
+CREATE INDEX idx_history_accreditation_time ON accreditation_history (accreditation_id, last_update_time);
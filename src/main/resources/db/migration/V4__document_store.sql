@@ -0,0 +1,13 @@
+-- document content moves out of the database into the DocumentStore, addressed by its SHA-256.
+-- the old content column stays, unmapped, until InlineDocumentMigrator has moved every row out of it.
+CREATE TABLE document_blob (
+    hash char(64) NOT NULL,
+    size bigint NOT NULL,
+    ref_count integer NOT NULL,
+    created_time bigint NOT NULL,
+    PRIMARY KEY (hash)
+) ENGINE=InnoDB;
+
+ALTER TABLE document
+    ADD COLUMN content_hash char(64),
+    ADD COLUMN size bigint;
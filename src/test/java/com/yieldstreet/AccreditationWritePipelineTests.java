@@ -0,0 +1,106 @@
+package com.yieldstreet;
+
+import com.yieldstreet.entity.*;
+import com.yieldstreet.repository.AccreditationRepository;
+import com.yieldstreet.service.AccreditationWritePipeline;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the writes really go out as JDBC batches against a real MySQL, by counting the statements
+ * Hibernate prepares. Without batching there would be one per row.
+ * The batch size is 50, see application.properties.
+ */
+@Import({TestcontainersConfiguration.class, AccreditationWritePipeline.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class AccreditationWritePipelineTests {
+
+	@Autowired
+	private AccreditationWritePipeline pipeline;
+
+	@Autowired
+	private AccreditationRepository accreditationRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void insertsAreBatchedPerTable() {
+		List<Accreditation> accs = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			accs.add(accreditation("user" + i));
+		}
+		pipeline.insertAccreditations(accs);
+
+		// 60 rows in two tables at 50 a batch is 2 batches per table
+		assertThat(statistics.getEntityInsertCount()).isEqualTo(120);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+		assertThat(accs).allSatisfy(acc -> assertThat(acc.getAccreditationId()).isNotNull());
+	}
+
+	@Test
+	void transitionsFlushHistoryAndUpdatesTogether() {
+		List<Accreditation> accs = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			accs.add(accreditation("user" + i));
+		}
+		pipeline.insertAccreditations(accs);
+
+		// load them managed the way the receiver does, then apply the transition
+		List<Accreditation> managed = accreditationRepository.findAllById(accs.stream().map(Accreditation::getAccreditationId).toList());
+		statistics.clear();
+		List<AccreditationHistory> histories = new ArrayList<>();
+		long now = System.currentTimeMillis();
+		for (Accreditation acc : managed) {
+			AccreditationHistory history = new AccreditationHistory();
+			history.setAccreditationId(acc.getAccreditationId());
+			history.setOldStatus(acc.getStatus());
+			history.setLastUpdateTime(now);
+			histories.add(history);
+			acc.setStatus(AccreditationStatus.CONFIRMED);
+			acc.setLastUpdateTime(now);
+		}
+		pipeline.recordTransitions(histories);
+
+		// one batch of history inserts and one of accreditation updates
+		assertThat(statistics.getEntityInsertCount()).isEqualTo(50);
+		assertThat(statistics.getEntityUpdateCount()).isEqualTo(50);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	private Accreditation accreditation(String userId) {
+		Document doc = new Document();
+		doc.setName("2018.pdf");
+		doc.setMimeType("application/pdf");
+		doc.setContentHash("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08");
+		doc.setSize(4L);
+		Accreditation acc = new Accreditation();
+		acc.setUserId(userId);
+		acc.setType(AccreditationType.BY_INCOME);
+		acc.setStatus(AccreditationStatus.PENDING);
+		acc.setDocument(doc);
+		return acc;
+	}
+
+}
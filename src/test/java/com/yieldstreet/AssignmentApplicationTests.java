@@ -1,20 +1,40 @@
 package com.yieldstreet;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import com.yieldstreet.dto.*;
 import com.yieldstreet.entity.*;
+import com.yieldstreet.export.AccreditationExporter;
+import com.yieldstreet.reactive.ReadTierApplication;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
+import org.testcontainers.containers.MySQLContainer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
 /**
  * The approach here is to test via the endpoints using the Spring RestTemplate.
@@ -35,7 +55,13 @@ class AssignmentApplicationTests {
 	private final static String GETAccreditationUrl = "http://localhost:${server.port}/user/{userId}/accreditation";
 	private final static String GETAccreditationHistoryUrl = "http://localhost:${server.port}/user/history/{accreditationId}";
 	private final static String POSTAccreditationUrl = "http://localhost:${server.port}/user/accreditation";
+	private final static String GETAccreditationDocumentUrl = "http://localhost:${server.port}/user/accreditation/{accreditationId}/document";
 	private final static String PUTAccreditationUrl = "http://localhost:${server.port}/user/accreditation/{accreditationId}";
+	private final static String LookupAccreditationUrl = "http://localhost:${server.port}/user/accreditations:lookup";
+	private final static String BulkAccreditationUrl = "http://localhost:${server.port}/user/accreditations:bulk";
+	private final static String ExportUrl = "http://localhost:${server.port}/admin/export?format={format}&gzip={gzip}";
+	private final static String CSV_HEADER = "record,accreditation_id,accreditation_history_id,user_id,accreditation_type,status,last_update_time";
+	private final static String NEXT_CURSOR_HEADER = "Next-Cursor";
 	private final static String USER_ID_NAME = "userId";
 	private final static String USER_ID_VALUE = "g8NlYJnk7zK9BlB1J2Ebjs0AkhCTpE1V";
 	private final static String ACC_ID_NAME = "accreditationId";
@@ -45,6 +71,10 @@ class AssignmentApplicationTests {
 	private final static Map<String, String> USER_ID_PAIR = Collections.singletonMap(USER_ID_NAME, USER_ID_VALUE);
 	@Value("${server.port}")
 	private String serverPort;
+	@Autowired
+	private MySQLContainer<?> mysqlContainer;
+	@Autowired
+	private AccreditationExporter accreditationExporter;
 
 	public AssignmentApplicationTests() {
 		restTemplate = new RestTemplate();
@@ -85,6 +115,10 @@ class AssignmentApplicationTests {
 		assertThat(AccreditationStatus.from(status.getAccreditationStatus())==AccreditationStatus.PENDING);
 		assertThat(AccreditationType.valueOf(status.getAccreditationType())==AccreditationType.BY_INCOME);
 
+		// GET the document back, it is stored decoded so it comes back as the bytes the base64 content stood for
+		byte[] document = doGET(GETAccreditationDocumentUrl, byte[].class, Collections.singletonMap(ACC_ID_NAME, accreditationId));
+		assertThat(document).isEqualTo(Base64.getDecoder().decode(CONTENT));
+
 		// PUT a bad accreditation to check the HTTP status code
 		AccreditationOutcomeDTO outcomeDTO = new AccreditationOutcomeDTO(AccreditationStatus.CONFIRMED.name());
 		sc = doPUT(outcomeDTO, Collections.singletonMap(ACC_ID_NAME, "bad accreditation id"));
@@ -131,10 +165,288 @@ class AssignmentApplicationTests {
 		assertThat(statuses.contains(AccreditationStatus.CONFIRMED));
 	}
 
+	/**
+	 * bulk insert over NDJSON, every line gets a result line back in order:
+	 *    a good record is created
+	 *    a second record for the same user is rejected by the pending rule
+	 *    a line which is not JSON is rejected without stopping the rest
+	 * then a bulk outcome over what was created, and a lookup of the users
+	 */
+	@Test
+	public void bulk_Insert_Reports_A_Result_Per_Line() throws Exception {
+		AccreditationDTO first = buildAccreditation();
+		first.setUserId("bulk-user-1");
+		AccreditationDTO second = buildAccreditation();
+		second.setUserId("bulk-user-2");
+		String body = objectMapper.writeValueAsString(first) + "\n"
+				+ objectMapper.writeValueAsString(first) + "\n"
+				+ "{not json\n"
+				+ objectMapper.writeValueAsString(second) + "\n";
+		HttpHeaders ndjson = new HttpHeaders();
+		ndjson.setContentType(MediaType.APPLICATION_NDJSON);
+
+		String response = restTemplate.postForObject(expandPort(BulkAccreditationUrl), new HttpEntity<>(body, ndjson), String.class);
+
+		List<BulkInsertResultDTO> results = new ArrayList<>();
+		for(String line : response.split("\n")){
+			results.add(objectMapper.readValue(line, BulkInsertResultDTO.class));
+		}
+		assertThat(results).extracting(BulkInsertResultDTO::getLine).containsExactly(1L, 2L, 3L, 4L);
+		assertThat(results).extracting(BulkInsertResultDTO::getResult).containsExactly(BulkInsertResultDTO.CREATED,
+				BulkInsertResultDTO.REJECTED, BulkInsertResultDTO.REJECTED, BulkInsertResultDTO.CREATED);
+		assertThat(isUUID(results.get(0).getAccreditationId())).isTrue();
+		UserAccreditationsDTO created = doGET(UserAccreditationsDTO.class, Collections.singletonMap(USER_ID_NAME, "bulk-user-2"));
+		assertThat(created.getAccreditationStatuses()).containsKey(results.get(3).getAccreditationId());
+
+		// and a bulk outcome for them, with a result per item carrying the status the single PUT would give
+		List<BulkOutcomeDTO> outcomes = List.of(
+				bulkOutcome(results.get(0).getAccreditationId(), AccreditationStatus.CONFIRMED),
+				bulkOutcome(UUID.randomUUID().toString(), AccreditationStatus.CONFIRMED),
+				bulkOutcome("bad accreditation id", AccreditationStatus.CONFIRMED));
+		ResponseEntity<BulkOutcomeResultDTO[]> outcomeResults = restTemplate.exchange(expandPort(BulkAccreditationUrl),
+				HttpMethod.PUT, new HttpEntity<>(outcomes, headers), BulkOutcomeResultDTO[].class);
+		assertThat(outcomeResults.getBody()).extracting(BulkOutcomeResultDTO::getStatus).containsExactly(200, 404, 400);
+
+		// and look the users up in one call, a user with nothing is listed as not found
+		UserLookupDTO lookup = new UserLookupDTO();
+		lookup.setUserIds(List.of("bulk-user-1", "bulk-user-2", "bulk-user-unknown"));
+		UserAccreditationsLookupDTO found = restTemplate.postForObject(expandPort(LookupAccreditationUrl), lookup,
+				UserAccreditationsLookupDTO.class);
+		assertThat(found.getUsers()).containsOnlyKeys("bulk-user-1", "bulk-user-2");
+		assertThat(found.getUsers().get("bulk-user-2").getAccreditationStatuses()).containsKey(results.get(3).getAccreditationId());
+		assertThat(found.getNotFound()).containsExactly("bulk-user-unknown");
+	}
+
+	/**
+	 * the reactive read tier started against the same database answers the client GET with the same JSON as the MVC one
+	 */
+	@Test
+	public void read_Tier_Returns_The_Same_Json_As_The_Mvc_Get() throws Exception {
+		AccreditationDTO accreditationDTO = buildAccreditation();
+		accreditationDTO.setUserId("read-tier-user");
+		String accreditationId = doPOST(accreditationDTO, AccreditationIdDTO.class).getAccreditationId();
+		Map<String, String> user = Collections.singletonMap(USER_ID_NAME, "read-tier-user");
+
+		try(ConfigurableApplicationContext readTier = new SpringApplicationBuilder(ReadTierApplication.class)
+				.web(WebApplicationType.REACTIVE)
+				.properties("spring.config.name=readtier")
+				.run("--server.port=0",
+						"--spring.docker.compose.enabled=false",
+						"--spring.r2dbc.url=r2dbc:mysql://" + mysqlContainer.getHost() + ":"
+								+ mysqlContainer.getMappedPort(MySQLContainer.MYSQL_PORT) + "/" + mysqlContainer.getDatabaseName(),
+						"--spring.r2dbc.username=" + mysqlContainer.getUsername(),
+						"--spring.r2dbc.password=" + mysqlContainer.getPassword())){
+			String readTierUrl = GETAccreditationUrl.replace("${server.port}",
+					readTier.getEnvironment().getProperty("local.server.port"));
+
+			JsonNode mvc = objectMapper.readTree(doGET(String.class, user));
+			JsonNode reactive = objectMapper.readTree(restTemplate.getForObject(readTierUrl, String.class, user));
+			assertThat(reactive).isEqualTo(mvc);
+			assertThat(reactive.get("accreditation_statuses").has(accreditationId)).isTrue();
+		}
+	}
+
+	/**
+	 * the history a page at a time with a limit smaller than the history:
+	 *    each page but the last has a Next-Cursor header, and following them gives every row once in time order
+	 *    a cursor which was not handed out is a 400
+	 */
+	@Test
+	public void history_Pages_Follow_The_Next_Cursor() {
+		String accreditationId = insertWithTwoHistoryRows("history-page-user");
+		Map<String, String> id = Collections.singletonMap(ACC_ID_NAME, accreditationId);
+
+		ResponseEntity<AccreditationHistoricTypeAndStatusDTO[]> first = restTemplate.getForEntity(
+				expandPort(GETAccreditationHistoryUrl) + "?limit=1", AccreditationHistoricTypeAndStatusDTO[].class, id);
+		assertThat(first.getBody()).extracting(AccreditationHistoricTypeAndStatusDTO::getAccreditationStatus)
+				.containsExactly(AccreditationStatus.PENDING.name());
+		String cursor = first.getHeaders().getFirst(NEXT_CURSOR_HEADER);
+		assertThat(cursor).isNotEmpty();
+
+		ResponseEntity<AccreditationHistoricTypeAndStatusDTO[]> second = restTemplate.getForEntity(
+				expandPort(GETAccreditationHistoryUrl) + "?limit=1&cursor={cursor}", AccreditationHistoricTypeAndStatusDTO[].class,
+				Map.of(ACC_ID_NAME, accreditationId, "cursor", cursor));
+		assertThat(second.getBody()).extracting(AccreditationHistoricTypeAndStatusDTO::getAccreditationStatus)
+				.containsExactly(AccreditationStatus.CONFIRMED.name());
+		assertThat(second.getHeaders().containsKey(NEXT_CURSOR_HEADER)).isFalse();
+		assertThat(Long.parseLong(second.getBody()[0].getLastUpdateTime()))
+				.isGreaterThan(Long.parseLong(first.getBody()[0].getLastUpdateTime()));
+
+		HttpStatusCode sc = doGETVerbose(expandPort(GETAccreditationHistoryUrl) + "?cursor={cursor}",
+				Map.of(ACC_ID_NAME, accreditationId, "cursor", "not a cursor"));
+		assertThat(sc).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * the same history with format=ndjson, all of it in one response with a line per row, or the rest of it after a cursor
+	 */
+	@Test
+	public void history_Streams_As_Ndjson() throws Exception {
+		String accreditationId = insertWithTwoHistoryRows("history-stream-user");
+		Map<String, String> id = Collections.singletonMap(ACC_ID_NAME, accreditationId);
+
+		ResponseEntity<String> all = restTemplate.getForEntity(expandPort(GETAccreditationHistoryUrl) + "?format=ndjson",
+				String.class, id);
+		assertThat(all.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_NDJSON)).isTrue();
+		List<AccreditationHistoricTypeAndStatusDTO> rows = readNdjson(all.getBody());
+		assertThat(rows).extracting(AccreditationHistoricTypeAndStatusDTO::getAccreditationStatus)
+				.containsExactly(AccreditationStatus.PENDING.name(), AccreditationStatus.CONFIRMED.name());
+
+		// it takes the cursor of a page and carries on from there
+		String cursor = restTemplate.getForEntity(expandPort(GETAccreditationHistoryUrl) + "?limit=1",
+				String.class, id).getHeaders().getFirst(NEXT_CURSOR_HEADER);
+		String rest = restTemplate.getForObject(expandPort(GETAccreditationHistoryUrl) + "?format=ndjson&cursor={cursor}",
+				String.class, Map.of(ACC_ID_NAME, accreditationId, "cursor", cursor));
+		assertThat(readNdjson(rest)).extracting(AccreditationHistoricTypeAndStatusDTO::getAccreditationStatus)
+				.containsExactly(AccreditationStatus.CONFIRMED.name());
+
+		HttpStatusCode sc = doGETVerbose(expandPort(GETAccreditationHistoryUrl) + "?format=ndjson&cursor={cursor}",
+				Map.of(ACC_ID_NAME, accreditationId, "cursor", "not a cursor"));
+		assertThat(sc).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * the compliance export as JSON Lines and CSV, each plain and gzipped. an accreditation and its history come out
+	 * as rows of the one shape, with the columns which do not apply left out of the JSON and empty in the CSV
+	 */
+	@Test
+	public void export_Writes_Jsonl_And_Csv_Plain_Or_Gzipped() throws Exception {
+		String accreditationId = insertWithTwoHistoryRows("export-user");
+
+		ResponseEntity<byte[]> jsonl = export("jsonl", false);
+		assertThat(jsonl.getHeaders().getContentType().isCompatibleWith(MediaType.parseMediaType("application/jsonl"))).isTrue();
+		assertThat(jsonl.getHeaders().getContentDisposition().getFilename()).endsWith(".jsonl");
+		String jsonlBody = new String(jsonl.getBody(), StandardCharsets.UTF_8);
+		assertThat(jsonlBody).endsWith("\n");
+		List<JsonNode> rows = new ArrayList<>();
+		for(String line : linesFor(jsonlBody, accreditationId)){
+			rows.add(objectMapper.readTree(line));
+		}
+		assertThat(rows).hasSize(3);
+		JsonNode accreditation = rows.stream().filter(row -> row.get("record").asText().equals("accreditation")).findFirst().orElseThrow();
+		assertThat(accreditation.get("user_id").asText()).isEqualTo("export-user");
+		assertThat(accreditation.get("accreditation_type").asText()).isEqualTo(AccreditationType.BY_INCOME.name());
+		assertThat(accreditation.get("status").asText()).isEqualTo(AccreditationStatus.FAILED.name());
+		assertThat(accreditation.has("accreditation_history_id")).isFalse();
+		List<JsonNode> history = rows.stream().filter(row -> row.get("record").asText().equals("history")).toList();
+		assertThat(history).extracting(row -> row.get("status").asText())
+				.containsExactlyInAnyOrder(AccreditationStatus.PENDING.name(), AccreditationStatus.CONFIRMED.name());
+		assertThat(history).allSatisfy(row -> {
+			assertThat(isUUID(row.get("accreditation_history_id").asText())).isTrue();
+			assertThat(row.has("user_id")).isFalse();
+		});
+
+		ResponseEntity<byte[]> csv = export("csv", false);
+		assertThat(csv.getHeaders().getContentType().isCompatibleWith(MediaType.parseMediaType("text/csv"))).isTrue();
+		String csvBody = new String(csv.getBody(), StandardCharsets.UTF_8);
+		assertThat(csvBody.split("\n")[0]).isEqualTo(CSV_HEADER);
+		List<String> csvRows = linesFor(csvBody, accreditationId);
+		assertThat(csvRows).hasSize(3);
+		assertThat(csvRows).anySatisfy(line -> assertThat(line)
+				.startsWith("accreditation," + accreditationId + ",,export-user," + AccreditationType.BY_INCOME.name() + ","
+						+ AccreditationStatus.FAILED.name() + ","));
+		assertThat(csvRows).filteredOn(line -> line.startsWith("history,")).hasSize(2)
+				.allSatisfy(line -> assertThat(line.split(",", -1)[3]).isEmpty());
+
+		// gzipped they are the same rows
+		ResponseEntity<byte[]> jsonlGz = export("jsonl", true);
+		assertThat(jsonlGz.getHeaders().getContentType()).isEqualTo(MediaType.parseMediaType("application/gzip"));
+		assertThat(jsonlGz.getHeaders().getContentDisposition().getFilename()).endsWith(".jsonl.gz");
+		assertThat(linesFor(gunzip(jsonlGz.getBody()), accreditationId)).isEqualTo(linesFor(jsonlBody, accreditationId));
+		ResponseEntity<byte[]> csvGz = export("csv", true);
+		String csvGzBody = gunzip(csvGz.getBody());
+		assertThat(csvGzBody.split("\n")[0]).isEqualTo(CSV_HEADER);
+		assertThat(linesFor(csvGzBody, accreditationId)).isEqualTo(csvRows);
+
+		assertThat(doGETVerbose(expandPort(ExportUrl), Map.of("format", "xml", "gzip", "false"))).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * an accreditation written while an export is running is not in it, both tables come from the snapshot taken
+	 * when the export started. the export is slowed to a row a second so it is still running when we write.
+	 */
+	@Test
+	public void export_Is_One_Snapshot() throws Exception {
+		insertWithTwoHistoryRows("export-snapshot-user-1");
+		// the test user can not see other sessions' transactions
+		JdbcTemplate root = new JdbcTemplate(new DriverManagerDataSource(mysqlContainer.getJdbcUrl(), "root", mysqlContainer.getPassword()));
+		ReflectionTestUtils.setField(accreditationExporter, "rowsPerSecond", 1L);
+		try{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			CompletableFuture<Long> running = CompletableFuture.supplyAsync(() -> {
+				try{
+					return accreditationExporter.export(out, AccreditationExporter.Format.JSONL, false);
+				}
+				catch(IOException e){
+					throw new IllegalStateException(e);
+				}
+			});
+			await().atMost(10, TimeUnit.SECONDS).until(() -> root.queryForObject("select count(*) from information_schema.innodb_trx " +
+					"where trx_is_read_only = 1 and trx_isolation_level = 'REPEATABLE READ' and trx_mysql_thread_id <> connection_id()",
+					Integer.class) > 0);
+
+			AccreditationDTO late = buildAccreditation();
+			late.setUserId("export-snapshot-user-2");
+			String lateId = doPOST(late, AccreditationIdDTO.class).getAccreditationId();
+			assertThat(running).isNotDone();
+
+			long rows = running.get(5, TimeUnit.MINUTES);
+			String body = out.toString(StandardCharsets.UTF_8);
+			assertThat(body.split("\n")).hasSize((int)rows);
+			assertThat(body).contains("export-snapshot-user-1").doesNotContain(lateId);
+		}
+		finally{
+			ReflectionTestUtils.setField(accreditationExporter, "rowsPerSecond", 0L);
+		}
+	}
+
 	/**
 	 * helpers below
 	 */
 
+	/**
+	 * POSTs an accreditation then takes it PENDING->CONFIRMED->FAILED, so its history has the two old statuses
+	 */
+	private String insertWithTwoHistoryRows(String userId){
+		AccreditationDTO accreditationDTO = buildAccreditation();
+		accreditationDTO.setUserId(userId);
+		String accreditationId = doPOST(accreditationDTO, AccreditationIdDTO.class).getAccreditationId();
+		Map<String, String> id = Collections.singletonMap(ACC_ID_NAME, accreditationId);
+		Map<String, String> user = Collections.singletonMap(USER_ID_NAME, userId);
+		for(AccreditationStatus outcome : List.of(AccreditationStatus.CONFIRMED, AccreditationStatus.FAILED)){
+			assertThat(doPUT(new AccreditationOutcomeDTO(outcome.name()), id)).isEqualTo(HttpStatus.OK);
+			// the PUT is applied asynchronously
+			await().atMost(10, TimeUnit.SECONDS).until(() -> outcome.name().equals(doGET(UserAccreditationsDTO.class, user)
+					.getAccreditationStatuses().get(accreditationId).getAccreditationStatus()));
+		}
+		return accreditationId;
+	}
+
+	private ResponseEntity<byte[]> export(String format, boolean gzip){
+		return restTemplate.getForEntity(expandPort(ExportUrl), byte[].class, Map.of("format", format, "gzip", Boolean.toString(gzip)));
+	}
+
+	/**
+	 * the export rows of an accreditation, itself and its history
+	 */
+	private List<String> linesFor(String body, String accreditationId){
+		return Arrays.stream(body.split("\n")).filter(line -> line.contains(accreditationId)).toList();
+	}
+
+	private String gunzip(byte[] compressed) throws IOException {
+		try(InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))){
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private List<AccreditationHistoricTypeAndStatusDTO> readNdjson(String body) throws Exception {
+		List<AccreditationHistoricTypeAndStatusDTO> rows = new ArrayList<>();
+		for(String line : body.split("\n")){
+			rows.add(objectMapper.readValue(line, AccreditationHistoricTypeAndStatusDTO.class));
+		}
+		return rows;
+	}
+
 	private Set<AccreditationStatus> toStatuses(AccreditationHistoricTypeAndStatusDTO[] historyDTOs){
 		Set<AccreditationStatus> ss = new HashSet<>();
 		for(AccreditationHistoricTypeAndStatusDTO dto : historyDTOs){
@@ -173,6 +485,13 @@ class AssignmentApplicationTests {
 		return accreditationDTO;
 	}
 
+	private BulkOutcomeDTO bulkOutcome(String accreditationId, AccreditationStatus outcome){
+		BulkOutcomeDTO dto = new BulkOutcomeDTO();
+		dto.setAccreditationId(accreditationId);
+		dto.setOutcome(outcome.name());
+		return dto;
+	}
+
 	private <Input,Output> Output doPOST(Input bodyDTO, Class<Output> clazz){
 		Output output = restTemplate.postForObject(
 				expandPort(POSTAccreditationUrl),
@@ -205,6 +524,14 @@ class AssignmentApplicationTests {
 		return output;
 	}
 
+	private HttpStatusCode doGETVerbose(String url, Map<String, String> urlParams){
+		try {
+			return restTemplate.getForEntity(url, String.class, urlParams).getStatusCode();
+		} catch(HttpStatusCodeException e) {
+			return e.getStatusCode();
+		}
+	}
+
 	private <Input> HttpStatusCode doPUT(Input bodyDTO, Map<String, String> urlParams){
 		HttpEntity<Input> entity = new HttpEntity<>(bodyDTO, headers);
 		ResponseEntity<String> out;
@@ -0,0 +1,145 @@
+package com.yieldstreet;
+
+import com.yieldstreet.entity.*;
+import com.yieldstreet.repository.SchemaIndexVerifier;
+import com.yieldstreet.service.AccreditationWritePipeline;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the flyway migrations against a real MySQL and checks, with EXPLAIN, that the SQL behind each
+ * repository query is answered from its index and not a full table scan (access type ALL),
+ * and that the schema allows only one PENDING accreditation per user, also on a database which had several before V2.
+ */
+@Import({TestcontainersConfiguration.class, AccreditationWritePipeline.class, SchemaIndexVerifier.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest
+class SchemaIndexTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private AccreditationWritePipeline pipeline;
+
+	@Autowired
+	private SchemaIndexVerifier verifier;
+
+	@Autowired
+	private MySQLContainer<?> mysqlContainer;
+
+	@BeforeEach
+	void setUp() {
+		List<Accreditation> accs = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			// several per user, at most one of them PENDING
+			accs.add(accreditation("user" + (i % 50), AccreditationStatus.values()[(i / 50) % AccreditationStatus.values().length], i));
+		}
+		pipeline.insertAccreditations(accs);
+	}
+
+	@Test
+	void onePendingPerUserIsEnforced() {
+		assertThatThrownBy(() -> pipeline.insertAccreditations(List.of(accreditation("user1", AccreditationStatus.PENDING, 0))))
+				.hasStackTraceContaining("uk_accreditation_pending_user");
+	}
+
+	@Test
+	void upgradeFailsTheOlderPendingDuplicates() {
+		// a schema of its own stopped at V1, the test user may only use the test database
+		JdbcTemplate root = new JdbcTemplate(new DriverManagerDataSource(mysqlContainer.getJdbcUrl(), "root", mysqlContainer.getPassword()));
+		root.execute("drop database if exists v2_upgrade");
+		root.execute("create database v2_upgrade");
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				mysqlContainer.getJdbcUrl().replace("/" + mysqlContainer.getDatabaseName(), "/v2_upgrade"), "root", mysqlContainer.getPassword());
+		Flyway.configure().dataSource(dataSource).target("1").load().migrate();
+		JdbcTemplate v1 = new JdbcTemplate(dataSource);
+		String insert = "insert into accreditation (accreditation_id, user_id, type, status, last_update_time) values (?, ?, 1, ?, ?)";
+		v1.update(insert, "old", "user1", 1, 100);
+		v1.update(insert, "older", "user1", 1, 50);
+		v1.update(insert, "newest", "user1", 1, 200);
+		v1.update(insert, "confirmed", "user1", 2, 300);
+		v1.update(insert, "alone", "user2", 1, 100);
+
+		Flyway.configure().dataSource(dataSource).target("2").load().migrate();
+
+		assertThat(v1.queryForList("select accreditation_id from accreditation where status = 1 order by accreditation_id", String.class))
+				.containsExactly("alone", "newest");
+		assertThat(v1.queryForList("select accreditation_id from accreditation where status = 4 order by accreditation_id", String.class))
+				.containsExactly("old", "older");
+		assertThat(v1.queryForList("select accreditation_id from accreditation_history where old_status = 1 order by accreditation_id", String.class))
+				.containsExactly("old", "older");
+		root.execute("drop database v2_upgrade");
+	}
+
+	@Test
+	void indexesArePresent() {
+		verifier.verify();
+	}
+
+	@Test
+	void userListingUsesUserIndex() {
+		assertUsesIndex("idx_accreditation_user_status",
+				"select accreditation_id, status, type from accreditation where user_id = ?", "user1");
+	}
+
+	@Test
+	void pendingCheckUsesUserIndex() {
+		assertUsesIndex("idx_accreditation_user_status",
+				"select accreditation_id from accreditation where user_id = ? and status = ?", "user1", 1);
+	}
+
+	@Test
+	void expiryScanUsesStatusTimeIndex() {
+		assertUsesIndex("idx_accreditation_status_time",
+				"select accreditation_id, last_update_time from accreditation where status = ? and last_update_time < ? " +
+						"and (last_update_time > ? or (last_update_time = ? and accreditation_id > ?)) " +
+						"order by last_update_time, accreditation_id limit 500", 2, 100, -1, -1, "");
+	}
+
+	@Test
+	void historyUsesAccreditationIndex() {
+		assertUsesIndex("idx_history_accreditation_time",
+				"select accreditation_history_id, accreditation_id, last_update_time, old_status from accreditation_history " +
+						"where accreditation_id = ? and (last_update_time > ? or (last_update_time = ? and accreditation_history_id > ?)) " +
+						"order by last_update_time, accreditation_history_id limit 101", "some-accreditation", -1, -1, "");
+	}
+
+	private Accreditation accreditation(String userId, AccreditationStatus status, long lastUpdateTime) {
+		Document doc = new Document();
+		doc.setName("2018.pdf");
+		doc.setMimeType("application/pdf");
+		doc.setContentHash("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08");
+		doc.setSize(4L);
+		Accreditation acc = new Accreditation();
+		acc.setUserId(userId);
+		acc.setType(AccreditationType.BY_INCOME);
+		acc.setStatus(status);
+		acc.setLastUpdateTime(lastUpdateTime);
+		acc.setDocument(doc);
+		return acc;
+	}
+
+	private void assertUsesIndex(String index, String sql, Object... args) {
+		List<Map<String, Object>> plan = jdbcTemplate.queryForList("explain " + sql, args);
+		assertThat(plan).hasSize(1);
+		assertThat(plan.get(0).get("type")).isNotEqualTo("ALL");
+		assertThat(plan.get(0).get("key")).isEqualTo(index);
+	}
+
+}
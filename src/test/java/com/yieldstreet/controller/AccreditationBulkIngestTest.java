@@ -0,0 +1,116 @@
+package com.yieldstreet.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yieldstreet.dto.AccreditationDTO;
+import com.yieldstreet.dto.BulkInsertResultDTO;
+import com.yieldstreet.service.AccreditationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * the NDJSON reading and batching, the service is mocked and creates every record it is given.
+ */
+class AccreditationBulkIngestTest {
+	private static final String RECORD = "{\"user_id\":\"u\",\"accreditation_type\":\"BY_INCOME\","
+			+ "\"document\":{\"name\":\"a.pdf\",\"mime_type\":\"application/pdf\",\"content\":\"%s\"}}";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final List<Integer> batchSizes = new ArrayList<>();
+	private AccreditationService accreditationService;
+	private AccreditationBulkIngest ingest;
+
+	@BeforeEach
+	public void setUp() {
+		accreditationService = mock(AccreditationService.class);
+		when(accreditationService.insertAccreditationBatch(anyList())).thenAnswer(inv -> {
+			List<AccreditationDTO> batch = inv.getArgument(0);
+			batchSizes.add(batch.size());
+			List<BulkInsertResultDTO> results = new ArrayList<>();
+			for(AccreditationDTO dto : batch){
+				results.add(BulkInsertResultDTO.created(dto.getUserId(), "id"));
+			}
+			return results;
+		});
+		ingest = new AccreditationBulkIngest();
+		ReflectionTestUtils.setField(ingest, "accreditationService", accreditationService);
+		ReflectionTestUtils.setField(ingest, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(ingest, "batchSize", 2);
+		ReflectionTestUtils.setField(ingest, "maxLineChars", 200);
+		ReflectionTestUtils.setField(ingest, "maxBatchChars", 10000L);
+	}
+
+	@Test
+	public void over_Long_Line_Is_Rejected_On_Its_Own() throws Exception {
+		String body = record("AAAA") + "\n" + record("A".repeat(500)) + "\r\n" + record("BBBB") + "\n";
+
+		List<BulkInsertResultDTO> results = run(body);
+
+		assertThat(results).extracting(BulkInsertResultDTO::getLine).containsExactly(1L, 2L, 3L);
+		assertThat(results).extracting(BulkInsertResultDTO::getResult).containsExactly(BulkInsertResultDTO.CREATED,
+				BulkInsertResultDTO.REJECTED, BulkInsertResultDTO.CREATED);
+		assertThat(results.get(1).getError()).contains("longer than 200");
+	}
+
+	@Test
+	public void rejected_Lines_Are_Written_Without_Waiting_For_A_Batch() throws Exception {
+		StringBuilder body = new StringBuilder();
+		for(int i = 0; i < 5; i++){
+			body.append("{not json\n");
+		}
+
+		int[] flushes = new int[1];
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void flush() {
+				flushes[0]++;
+			}
+		};
+		ingest.ingest(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)), out);
+
+		// two at a time as they come, and the last one at the end
+		assertThat(flushes[0]).isEqualTo(3);
+		assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).hasSize(5);
+		verify(accreditationService, never()).insertAccreditationBatch(anyList());
+	}
+
+	@Test
+	public void batch_Goes_Early_When_Its_Lines_Are_Large() throws Exception {
+		ReflectionTestUtils.setField(ingest, "batchSize", 100);
+		ReflectionTestUtils.setField(ingest, "maxBatchChars", 250L);
+		String body = record("A".repeat(40)) + "\n" + record("B".repeat(40)) + "\n" + record("C".repeat(40)) + "\n";
+
+		List<BulkInsertResultDTO> results = run(body);
+
+		assertThat(results).hasSize(3);
+		assertThat(batchSizes).containsExactly(2, 1);
+	}
+
+	private List<BulkInsertResultDTO> run(String body) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ingest.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+		List<BulkInsertResultDTO> results = new ArrayList<>();
+		for(String line : out.toString(StandardCharsets.UTF_8).split("\n")){
+			results.add(objectMapper.readValue(line, BulkInsertResultDTO.class));
+		}
+		return results;
+	}
+
+	private static String record(String content) {
+		return String.format(RECORD, content);
+	}
+
+}
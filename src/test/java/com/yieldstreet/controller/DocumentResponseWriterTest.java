@@ -0,0 +1,130 @@
+package com.yieldstreet.controller;
+
+import com.yieldstreet.document.DocumentDownload;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * plain unit test of the download responses, against a blob file and against a stream standing in for a
+ * compressed blob.
+ */
+class DocumentResponseWriterTest {
+	private static final String CONTENT = "0123456789";
+	private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+	private final DocumentResponseWriter writer = new DocumentResponseWriter();
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void whole_Document_With_Etag() throws Exception {
+		MockHttpServletResponse response = write(streamed(), new MockHttpServletRequest("GET", "/"));
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader("ETag")).isEqualTo("\"" + HASH + "\"");
+		assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+		assertThat(response.getContentType()).isEqualTo("application/pdf");
+		assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	public void range_From_A_Stream() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader("Range", "bytes=2-5");
+
+		MockHttpServletResponse response = write(streamed(), request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 2-5/10");
+		assertThat(response.getContentAsString()).isEqualTo("2345");
+	}
+
+	@Test
+	public void range_From_A_File_Skips_The_Blob_Header() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader("Range", "bytes=-3");
+
+		MockHttpServletResponse response = write(file(), request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 7-9/10");
+		assertThat(response.getContentAsString()).isEqualTo("789");
+	}
+
+	@Test
+	public void file_Is_Handed_To_Sendfile_When_Available() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+		request.addHeader("Range", "bytes=1-2");
+
+		MockHttpServletResponse response = write(file(), request);
+
+		assertThat(response.getContentLengthLong()).isEqualTo(2);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(7L + 1);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(7L + 3);
+	}
+
+	@Test
+	public void unsatisfiable_Range() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader("Range", "bytes=10-");
+
+		MockHttpServletResponse response = write(streamed(), request);
+
+		assertThat(response.getStatus()).isEqualTo(416);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */10");
+	}
+
+	@Test
+	public void stale_If_Range_Gets_Everything() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader("Range", "bytes=2-5");
+		request.addHeader("If-Range", "\"something-else\"");
+
+		MockHttpServletResponse response = write(streamed(), request);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	public void not_Modified_When_Etag_Matches() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader("If-None-Match", "\"" + HASH + "\"");
+
+		MockHttpServletResponse response = write(streamed(), request);
+
+		assertThat(response.getStatus()).isEqualTo(304);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	private MockHttpServletResponse write(DocumentDownload document, MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		writer.write(document, request, response);
+		return response;
+	}
+
+	private DocumentDownload streamed() {
+		return new DocumentDownload("statement.pdf", "application/pdf", HASH, CONTENT.length(), null, 0,
+				() -> new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	private DocumentDownload file() throws Exception {
+		Path blob = dir.resolve(HASH);
+		Files.writeString(blob, "HEADER!" + CONTENT, StandardCharsets.US_ASCII);
+		return new DocumentDownload("statement.pdf", "application/pdf", HASH, CONTENT.length(), blob, 7,
+				() -> { throw new AssertionError("should be sent from the file"); });
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.yieldstreet.controller;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * load generator for comparing the platform thread and virtual thread modes. it keeps a fixed number of client
+ * GETs in flight against a running instance for a while and reports throughput and latency percentiles.
+ * it is not a test, start the app twice, once as normal and once with --spring.profiles.active=virtual on Java 21,
+ * load some accreditations (POST /user/accreditations:bulk is quickest) and run this against each with:
+ *   mvn test-compile exec:java -Dexec.mainClass=com.yieldstreet.controller.VirtualThreadLoadBenchmark -Dexec.classpathScope=test
+ *       -Dexec.args="http://localhost:9999 10000 60 1000"
+ * the arguments are the base url, concurrent clients, seconds to run and how many user ids (user0, user1, ...) to spread
+ * the GETs over. 10k clients needs 10k sockets on both ends, raise ulimit -n first. leave the cache off (the default,
+ * accreditation-cache-enabled=false) so every request reaches the database.
+ */
+public class VirtualThreadLoadBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String baseUrl = args.length > 0 ? args[0] : "http://localhost:9999";
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+		int users = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+		HttpClient http = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(10))
+				.build();
+		// warm up the JIT and the pools on both ends before we measure
+		run(http, baseUrl, Math.min(clients, 200), 10, users, false);
+		run(http, baseUrl, clients, seconds, users, true);
+	}
+
+	private static void run(HttpClient http, String baseUrl, int clients, int seconds, int users, boolean report)
+			throws InterruptedException {
+		Semaphore inFlight = new Semaphore(clients);
+		ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+		AtomicLong errors = new AtomicLong();
+		AtomicLong maxInFlight = new AtomicLong();
+		long end = System.nanoTime() + seconds * 1_000_000_000L;
+		long sent = 0;
+		long start = System.nanoTime();
+		while(System.nanoTime() < end){
+			inFlight.acquire();
+			maxInFlight.accumulateAndGet(clients - inFlight.availablePermits(), Math::max);
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/user/user" + (sent++ % users) + "/accreditation"))
+					.timeout(Duration.ofSeconds(30))
+					.GET()
+					.build();
+			long requestStart = System.nanoTime();
+			http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+				if(failure != null || response.statusCode() != 200){
+					errors.incrementAndGet();
+				}
+				else{
+					latencies.add(System.nanoTime() - requestStart);
+				}
+				inFlight.release();
+			});
+		}
+		// let what is still in flight finish
+		inFlight.acquire(clients);
+		long elapsed = System.nanoTime() - start;
+		if(report){
+			long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+			System.out.printf("%d clients, %d requests in %.1fs, %.0f req/s, %d errors, %d max in flight%n",
+					clients, sorted.length + errors.get(), elapsed / 1e9, sorted.length / (elapsed / 1e9),
+					errors.get(), maxInFlight.get());
+			System.out.printf("latency ms p50 %.1f p90 %.1f p99 %.1f p99.9 %.1f max %.1f%n",
+					percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+					sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+		}
+	}
+
+	private static double percentile(long[] sorted, double percentile) {
+		if(sorted.length == 0){
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+	}
+
+}
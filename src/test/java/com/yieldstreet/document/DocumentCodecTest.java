@@ -0,0 +1,62 @@
+package com.yieldstreet.document;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * plain unit test of the blob layout, codec choice and reading blobs written before the header.
+ */
+class DocumentCodecTest {
+
+	@Test
+	public void compressible_Content_Round_Trips_Deflated() throws Exception {
+		byte[] content = "BT /F1 12 Tf 72 712 Td (Statement of income) Tj ET\n".repeat(200).getBytes(StandardCharsets.US_ASCII);
+
+		byte[] blob = DocumentCodec.encode(new ByteArrayInputStream(content), DocumentCodec.Codec.DEFLATE,
+				DocumentCodec.Encoding.RAW).readAllBytes();
+		DocumentCodec.Decoded decoded = DocumentCodec.decode(new ByteArrayInputStream(blob));
+
+		assertThat(blob.length).isLessThan(content.length / 10);
+		assertThat(decoded.getCodec()).isEqualTo(DocumentCodec.Codec.DEFLATE);
+		assertThat(decoded.getEncoding()).isEqualTo(DocumentCodec.Encoding.RAW);
+		assertThat(decoded.getContent().readAllBytes()).isEqualTo(content);
+	}
+
+	@Test
+	public void stored_Content_Is_Only_Prefixed_By_The_Header() throws Exception {
+		byte[] content = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 1, 2, 3};
+
+		byte[] blob = DocumentCodec.encode(new ByteArrayInputStream(content), DocumentCodec.Codec.STORED,
+				DocumentCodec.Encoding.RAW).readAllBytes();
+
+		assertThat(blob).hasSize(DocumentCodec.HEADER_LENGTH + content.length);
+		assertThat(DocumentCodec.decode(new ByteArrayInputStream(blob)).getContent().readAllBytes()).isEqualTo(content);
+	}
+
+	@Test
+	public void blobs_Without_A_Header_Read_As_Stored_Text() throws Exception {
+		byte[] legacy = "ICAiQC8qIjogWyJzcmMvKiJdCiAgICB9CiAgfQp9Cg==".getBytes(StandardCharsets.UTF_8);
+
+		DocumentCodec.Decoded decoded = DocumentCodec.decode(new ByteArrayInputStream(legacy));
+
+		assertThat(decoded.getCodec()).isEqualTo(DocumentCodec.Codec.STORED);
+		assertThat(decoded.getEncoding()).isEqualTo(DocumentCodec.Encoding.TEXT);
+		assertThat(decoded.getContent().readAllBytes()).isEqualTo(legacy);
+		// and ones shorter than a header
+		assertThat(DocumentCodec.decode(new ByteArrayInputStream(new byte[]{1, 2})).getContent().readAllBytes()).containsExactly(1, 2);
+	}
+
+	@Test
+	public void already_Compressed_Types_Are_Stored() {
+		assertThat(DocumentCodec.codecFor("image/jpeg")).isEqualTo(DocumentCodec.Codec.STORED);
+		assertThat(DocumentCodec.codecFor("image/PNG")).isEqualTo(DocumentCodec.Codec.STORED);
+		assertThat(DocumentCodec.codecFor("application/zip; charset=binary")).isEqualTo(DocumentCodec.Codec.STORED);
+		assertThat(DocumentCodec.codecFor("application/pdf")).isEqualTo(DocumentCodec.Codec.DEFLATE);
+		assertThat(DocumentCodec.codecFor("text/plain")).isEqualTo(DocumentCodec.Codec.DEFLATE);
+	}
+
+}
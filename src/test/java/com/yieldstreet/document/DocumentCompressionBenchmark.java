@@ -0,0 +1,104 @@
+package com.yieldstreet.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * reports the compression ratio and encode/decode throughput of DocumentCodec. it is not a test, run it by hand
+ * from the IDE or with:
+ *   mvn test-compile exec:java -Dexec.mainClass=com.yieldstreet.document.DocumentCompressionBenchmark -Dexec.classpathScope=test
+ * pass real statements (pdf, jpg, png) as arguments for real numbers, the mime type is taken from the extension.
+ * with no arguments it uses generated samples: a text heavy PDF like the bank statements we get, a scanned PDF which is
+ * mostly an embedded JPEG, and a JPEG.
+ */
+public class DocumentCompressionBenchmark {
+
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) throws IOException {
+		List<Object[]> samples = new ArrayList<>();
+		if(args.length > 0){
+			for(String file : args){
+				Path path = Path.of(file);
+				samples.add(new Object[]{path.getFileName().toString(), mimeTypeOf(file), Files.readAllBytes(path)});
+			}
+		}
+		else{
+			samples.add(new Object[]{"text statement", "application/pdf", textPdf(2_000_000)});
+			samples.add(new Object[]{"scanned statement", "application/pdf", scannedPdf(2_000_000)});
+			samples.add(new Object[]{"photo", "image/jpeg", random(2_000_000)});
+		}
+		for(Object[] sample : samples){
+			run((String) sample[0], (String) sample[1], (byte[]) sample[2], 3, false);
+		}
+		for(Object[] sample : samples){
+			run((String) sample[0], (String) sample[1], (byte[]) sample[2], ROUNDS, true);
+		}
+	}
+
+	private static void run(String name, String mimeType, byte[] content, int rounds, boolean report) throws IOException {
+		DocumentCodec.Codec codec = DocumentCodec.codecFor(mimeType);
+		byte[] blob = null;
+		long encodeNanos = 0;
+		long decodeNanos = 0;
+		for(int round = 0; round < rounds; round++){
+			long start = System.nanoTime();
+			blob = DocumentCodec.encode(new ByteArrayInputStream(content), codec, DocumentCodec.Encoding.RAW).readAllBytes();
+			encodeNanos += System.nanoTime() - start;
+			start = System.nanoTime();
+			DocumentCodec.decode(new ByteArrayInputStream(blob)).getContent().transferTo(OutputStream.nullOutputStream());
+			decodeNanos += System.nanoTime() - start;
+		}
+		if(report){
+			double mb = (double) content.length * rounds / 1048576;
+			System.out.printf("%-20s %-16s %-8s %,11d -> %,11d bytes  ratio %5.2f  encode %,8.1f MB/s  decode %,8.1f MB/s%n",
+					name, mimeType, codec, content.length, blob.length, (double) content.length / blob.length,
+					mb * 1e9 / encodeNanos, mb * 1e9 / decodeNanos);
+		}
+	}
+
+	private static byte[] textPdf(int size) {
+		StringBuilder pdf = new StringBuilder("%PDF-1.4\n");
+		Random random = new Random(1);
+		int line = 0;
+		while(pdf.length() < size){
+			pdf.append("BT /F1 9 Tf 40 ").append(780 - (line++ % 60) * 12).append(" Td (")
+					.append(String.format("%02d/%02d/2024  TRANSFER REF %08d  %,12.2f  %,14.2f", 1 + random.nextInt(28),
+							1 + random.nextInt(12), random.nextInt(100_000_000), random.nextDouble() * 10_000, random.nextDouble() * 1_000_000))
+					.append(") Tj ET\n");
+		}
+		return pdf.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static byte[] scannedPdf(int size) {
+		byte[] header = textPdf(size / 20);
+		byte[] image = random(size - header.length);
+		byte[] pdf = new byte[size];
+		System.arraycopy(header, 0, pdf, 0, header.length);
+		System.arraycopy(image, 0, pdf, header.length, image.length);
+		return pdf;
+	}
+
+	// entropy coded image data is indistinguishable from random
+	private static byte[] random(int size) {
+		byte[] bytes = new byte[size];
+		new Random(2).nextBytes(bytes);
+		return bytes;
+	}
+
+	private static String mimeTypeOf(String file) {
+		String lower = file.toLowerCase();
+		if(lower.endsWith(".pdf")) return "application/pdf";
+		if(lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
+		if(lower.endsWith(".png")) return "image/png";
+		return "application/octet-stream";
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.yieldstreet.document;
+
+import com.yieldstreet.exception.DocumentTooLargeException;
+import com.yieldstreet.exception.DocumentTypeMismatchException;
+import com.yieldstreet.exception.InvalidDocumentContentException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * plain unit test of the upload stream, the checks have to fire while it is read and not after
+ */
+class DocumentUploadTest {
+
+	private static final byte[] PDF = "%PDF-1.7\n1 0 obj << /Type /Catalog >> endobj\n".getBytes(StandardCharsets.US_ASCII);
+
+	@Test
+	public void raw_And_Base64_Bodies_Read_As_The_Document() throws Exception {
+		InputStream raw = DocumentUpload.open(new ByteArrayInputStream(PDF), false, "application/pdf", 1024);
+		InputStream base64 = DocumentUpload.open(new ByteArrayInputStream(Base64.getEncoder().encode(PDF)), true,
+				"application/pdf; version=1.7", 1024);
+
+		assertThat(raw.readAllBytes()).isEqualTo(PDF);
+		assertThat(base64.readAllBytes()).isEqualTo(PDF);
+	}
+
+	@Test
+	public void content_Not_Matching_The_Declared_Type_Is_Refused_On_The_First_Chunk() {
+		byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F'};
+
+		assertThatThrownBy(() -> DocumentUpload.open(new ByteArrayInputStream(jpeg), false, "application/pdf", 1024))
+				.isInstanceOf(DocumentTypeMismatchException.class);
+		// a type we have no signature for cannot be something we do
+		assertThatThrownBy(() -> DocumentUpload.open(new ByteArrayInputStream(PDF), false, "text/plain", 1024))
+				.isInstanceOf(DocumentTypeMismatchException.class);
+		// but otherwise goes through
+		assertThat(DocumentUpload.open(new ByteArrayInputStream(PDF), false, "application/octet-stream", 1024)).isNotNull();
+	}
+
+	@Test
+	public void uploads_Fail_As_Soon_As_They_Pass_The_Limit() {
+		byte[] big = new byte[1024 * 1024];
+		System.arraycopy(PDF, 0, big, 0, PDF.length);
+		CountingInputStream body = new CountingInputStream(new ByteArrayInputStream(big));
+
+		assertThatThrownBy(() -> DocumentUpload.open(body, false, "application/pdf", 1000).readAllBytes())
+				.isInstanceOf(DocumentTooLargeException.class);
+		assertThat(body.getCount()).isLessThan(big.length);
+		assertThat(DocumentUpload.minDecodedLength(4000, true)).isEqualTo(2998);
+	}
+
+	@Test
+	public void bad_Base64_Is_Reported_As_Bad_Content() {
+		byte[] body = "JVBERi0xLjcK!!!!".getBytes(StandardCharsets.US_ASCII);
+
+		assertThatThrownBy(() -> DocumentUpload.open(new ByteArrayInputStream(body), true, "application/pdf", 1024).readAllBytes())
+				.isInstanceOf(InvalidDocumentContentException.class);
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.yieldstreet.document;
+
+import com.yieldstreet.exception.DocumentStoreException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * plain unit test of the filesystem store against a temp directory.
+ */
+class LocalFileSystemDocumentStoreTest {
+	// sha-256 of "test"
+	private static final String TEST_HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+	@TempDir
+	Path root;
+
+	private LocalFileSystemDocumentStore store;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		store = new LocalFileSystemDocumentStore();
+		ReflectionTestUtils.setField(store, "root", root);
+		store.init();
+	}
+
+	@Test
+	public void content_Is_Addressed_By_Its_Sha256() throws Exception {
+		StoredBlob blob = store.put(stream("test"));
+
+		assertThat(blob.getHash()).isEqualTo(TEST_HASH);
+		assertThat(blob.getSize()).isEqualTo(4);
+		assertThat(store.exists(TEST_HASH)).isTrue();
+		try (InputStream in = store.open(TEST_HASH)) {
+			assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("test");
+		}
+	}
+
+	@Test
+	public void duplicate_Content_Is_Stored_Once() {
+		store.put(stream("test"));
+		store.put(stream("test"));
+		store.put(stream("other"));
+
+		List<String> hashes = new ArrayList<>();
+		store.forEach(hashes::add);
+
+		assertThat(hashes).hasSize(2).contains(TEST_HASH);
+		// nothing left over in the temp directory either
+		assertThat(root.resolve("tmp").toFile().list()).isEmpty();
+	}
+
+	@Test
+	public void verify_Detects_Corruption() throws Exception {
+		store.put(stream("test"));
+		assertThat(store.verify(TEST_HASH)).isTrue();
+
+		Files.writeString(store.pathOf(TEST_HASH), "tampered");
+
+		assertThat(store.verify(TEST_HASH)).isFalse();
+	}
+
+	@Test
+	public void storing_Again_Refreshes_The_Created_Time() throws Exception {
+		store.put(stream("test"));
+		Files.setLastModifiedTime(store.pathOf(TEST_HASH), FileTime.fromMillis(1000));
+
+		store.put(stream("test"));
+
+		assertThat(store.createdTime(TEST_HASH)).isGreaterThan(System.currentTimeMillis() - 60000);
+	}
+
+	@Test
+	public void only_Blobs_Older_Than_The_Cutoff_Are_Collected() throws Exception {
+		store.put(stream("test"));
+		long cutoff = System.currentTimeMillis() - 60000;
+		assertThat(store.deleteIfOlderThan(TEST_HASH, cutoff)).isFalse();
+		assertThat(store.exists(TEST_HASH)).isTrue();
+
+		Files.setLastModifiedTime(store.pathOf(TEST_HASH), FileTime.fromMillis(1000));
+		assertThat(store.deleteIfOlderThan(TEST_HASH, cutoff)).isTrue();
+		assertThat(store.exists(TEST_HASH)).isFalse();
+		assertThat(root.resolve("tmp").toFile().list()).isEmpty();
+
+		// stored again after it was collected, it is written afresh
+		store.put(stream("test"));
+		assertThat(store.verify(TEST_HASH)).isTrue();
+	}
+
+	@Test
+	public void hash_Must_Not_Escape_The_Root() {
+		assertThatThrownBy(() -> store.open("../../etc/passwd")).isInstanceOf(DocumentStoreException.class);
+	}
+
+	private static InputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
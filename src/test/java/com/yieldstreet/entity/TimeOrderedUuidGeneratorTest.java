@@ -0,0 +1,54 @@
+package com.yieldstreet.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * plain unit test of the version 7 ids and their BINARY(16) form.
+ */
+class TimeOrderedUuidGeneratorTest {
+
+	@Test
+	public void ids_Are_Version_7_With_The_Millis_Up_Front() {
+		long now = System.currentTimeMillis();
+		UUID id = TimeOrderedUuidGenerator.timeOrdered(now);
+
+		assertThat(id.version()).isEqualTo(7);
+		assertThat(id.variant()).isEqualTo(2);
+		assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(now);
+		// still a UUID to anything validating the API
+		assertThat(UUID.fromString(id.toString())).isEqualTo(id);
+	}
+
+	@Test
+	public void binary_Form_Sorts_By_Time() {
+		long now = System.currentTimeMillis();
+		byte[] earlier = UuidBinaryType.toBytes(TimeOrderedUuidGenerator.timeOrdered(now).toString());
+		byte[] later = UuidBinaryType.toBytes(TimeOrderedUuidGenerator.timeOrdered(now + 1).toString());
+
+		// MySQL compares BINARY columns as unsigned bytes
+		assertThat(Arrays.compareUnsigned(earlier, later)).isNegative();
+	}
+
+	@Test
+	public void binary_Form_Round_Trips() {
+		String id = UUID.randomUUID().toString();
+
+		byte[] bytes = UuidBinaryType.toBytes(id);
+
+		assertThat(bytes).hasSize(16);
+		assertThat(UuidBinaryType.toString(bytes)).isEqualTo(id);
+		assertThat(UuidBinaryType.toString(UuidBinaryType.toBytes(UuidBinaryType.MIN_ID))).isEqualTo(UuidBinaryType.MIN_ID);
+	}
+
+	@Test
+	public void non_Uuid_Is_Rejected() {
+		assertThatThrownBy(() -> UuidBinaryType.toBytes("not-a-uuid")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
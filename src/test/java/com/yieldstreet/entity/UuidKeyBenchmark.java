@@ -0,0 +1,85 @@
+package com.yieldstreet.entity;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * compares the old and new primary keys on a large table: random version 4 ids as 36 character strings against
+ * version 7 ids in BINARY(16). it loads the same number of rows into a copy of the accreditation table with each
+ * key, with a secondary index like the real one, and prints the insert rate and the data and index sizes.
+ * it is not a test, it needs a MySQL to point at (docker compose up mysql will do) and run it by hand with:
+ *   mvn test-compile exec:java -Dexec.mainClass=com.yieldstreet.entity.UuidKeyBenchmark -Dexec.classpathScope=test
+ * optional arguments are the jdbc url, user, password and the number of rows.
+ */
+public class UuidKeyBenchmark {
+
+	private static final int BATCH = 1000;
+
+	public static void main(String[] args) throws SQLException {
+		String url = args.length > 0 ? args[0] : "jdbc:mysql://localhost:3306/mydatabase?rewriteBatchedStatements=true";
+		String user = args.length > 1 ? args[1] : "myuser";
+		String password = args.length > 2 ? args[2] : "secret";
+		int rows = args.length > 3 ? Integer.parseInt(args[3]) : 5_000_000;
+		try (Connection connection = DriverManager.getConnection(url, user, password)) {
+			run(connection, "bench_uuid_v4_char", "varchar(36)", rows, false);
+			run(connection, "bench_uuid_v7_binary", "binary(16)", rows, true);
+		}
+	}
+
+	private static void run(Connection connection, String table, String keyType, int rows, boolean binary) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("drop table if exists " + table);
+			statement.execute("create table " + table + " (id " + keyType + " not null primary key, user_id varchar(255), " +
+					"status integer not null, type integer not null, last_update_time bigint not null, " +
+					"index idx_user_status (user_id, status, type), index idx_status_time (status, last_update_time)) engine=InnoDB");
+		}
+		connection.setAutoCommit(false);
+		long start = System.nanoTime();
+		long reportedAt = start;
+		try (PreparedStatement insert = connection.prepareStatement("insert into " + table + " values (?, ?, ?, ?, ?)")) {
+			for (int i = 1; i <= rows; i++) {
+				long now = System.currentTimeMillis();
+				if (binary) {
+					insert.setBytes(1, UuidBinaryType.toBytes(TimeOrderedUuidGenerator.timeOrdered(now).toString()));
+				}
+				else {
+					insert.setString(1, UUID.randomUUID().toString());
+				}
+				insert.setString(2, "user" + (i % 100_000));
+				insert.setInt(3, 1 + i % 4);
+				insert.setInt(4, 1 + i % 2);
+				insert.setLong(5, now);
+				insert.addBatch();
+				if (i % BATCH == 0) {
+					insert.executeBatch();
+					connection.commit();
+				}
+				if (i % 1_000_000 == 0) {
+					// the v4 rate falls away as the table outgrows the buffer pool, so show it as it goes
+					long t = System.nanoTime();
+					System.out.printf("%-22s %,10d rows  %,10.0f rows/s over the last million%n", table, i, 1_000_000 * 1e9 / (t - reportedAt));
+					reportedAt = t;
+				}
+			}
+			insert.executeBatch();
+			connection.commit();
+		}
+		long nanos = System.nanoTime() - start;
+		connection.setAutoCommit(true);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("analyze table " + table);
+			try (ResultSet rs = statement.executeQuery("select data_length, index_length from information_schema.tables " +
+					"where table_schema = database() and table_name = '" + table + "'")) {
+				rs.next();
+				System.out.printf("%-22s %,10d rows  %,10.0f rows/s  data %,8.1f MB  secondary indexes %,8.1f MB%n",
+						table, rows, rows * 1e9 / nanos, rs.getLong(1) / 1048576.0, rs.getLong(2) / 1048576.0);
+			}
+		}
+	}
+
+}
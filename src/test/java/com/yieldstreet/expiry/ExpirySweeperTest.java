@@ -0,0 +1,77 @@
+package com.yieldstreet.expiry;
+
+import com.yieldstreet.rabbit.AccreditationStateChangeEvent;
+import com.yieldstreet.rabbit.RabbitMQSender;
+import com.yieldstreet.repository.AccreditationActivityView;
+import com.yieldstreet.repository.AccreditationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * an accreditation the sweeper has sent EXPIRED for is still CONFIRMED on the next sweep until the receiver gets to it
+ */
+class ExpirySweeperTest {
+	private static final String ID = "00000001-0001-0001-0001-000000000001";
+
+	private AccreditationRepository accreditationRepository;
+	private RabbitMQSender rabbitMQSender;
+	private ExpirySweeper sweeper;
+
+	@BeforeEach
+	public void setUp() {
+		accreditationRepository = mock(AccreditationRepository.class);
+		rabbitMQSender = mock(RabbitMQSender.class);
+		sweeper = new ExpirySweeper();
+		ReflectionTestUtils.setField(sweeper, "accreditationRepository", accreditationRepository);
+		ReflectionTestUtils.setField(sweeper, "rabbitMQSender", rabbitMQSender);
+		ReflectionTestUtils.setField(sweeper, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(sweeper, "millisToExpiry", 1000L);
+		ReflectionTestUtils.setField(sweeper, "pageSize", 10);
+		ReflectionTestUtils.setField(sweeper, "resendMillis", 60000L);
+		ReflectionTestUtils.setField(sweeper, "resendMaxSize", 100L);
+		sweeper.registerMetrics();
+		AccreditationActivityView overdue = mock(AccreditationActivityView.class);
+		when(overdue.getAccreditationId()).thenReturn(ID);
+		when(accreditationRepository.findInactiveSince(anyInt(), anyLong(), anyLong(), anyString(), any()))
+				.thenReturn(List.of(overdue));
+	}
+
+	@Test
+	public void a_Still_Confirmed_Accreditation_Is_Not_Sent_Again_Within_The_Resend_Window() {
+		sweeper.sweep();
+		sweeper.sweep();
+
+		ArgumentCaptor<List<AccreditationStateChangeEvent>> sent = ArgumentCaptor.forClass(List.class);
+		verify(rabbitMQSender, times(1)).sendAll(sent.capture());
+		assertThat(sent.getValue()).extracting(AccreditationStateChangeEvent::getAccreditationId).containsExactly(ID);
+	}
+
+	@Test
+	public void a_Failed_Send_Is_Retried_On_The_Next_Sweep() {
+		doThrow(new IllegalStateException("nack")).doNothing().when(rabbitMQSender).sendAll(anyList());
+
+		assertThatThrownBy(sweeper::sweep).isInstanceOf(IllegalStateException.class);
+		sweeper.sweep();
+
+		verify(rabbitMQSender, times(2)).sendAll(anyList());
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.yieldstreet.expiry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * plain unit test, the wheel has no Spring or backend dependencies so there is nothing to mock.
+ */
+class HashedTimingWheelTest {
+	private static final long START = 1_000_000L;
+	private static final long TICK = 100L;
+
+	@Test
+	public void deadline_Is_Reported_Once_And_Never_Early() {
+		HashedTimingWheel wheel = new HashedTimingWheel(TICK, 8, START);
+		wheel.schedule("a", START + 250);
+
+		assertThat(wheel.advance(START + 250)).isEmpty();
+		assertThat(wheel.advance(START + 300)).containsExactly("a");
+		assertThat(wheel.advance(START + 1000)).isEmpty();
+		assertThat(wheel.size()).isZero();
+	}
+
+	@Test
+	public void deadline_Beyond_One_Revolution_Waits_For_Its_Round() {
+		HashedTimingWheel wheel = new HashedTimingWheel(TICK, 4, START);
+		// 4 buckets of 100ms, so this goes round the wheel twice before it is due
+		wheel.schedule("far", START + 1050);
+
+		assertThat(wheel.advance(START + 1000)).isEmpty();
+		assertThat(wheel.contains("far")).isTrue();
+		assertThat(wheel.advance(START + 1100)).containsExactly("far");
+	}
+
+	@Test
+	public void reschedule_Replaces_The_Deadline() {
+		HashedTimingWheel wheel = new HashedTimingWheel(TICK, 8, START);
+		wheel.schedule("a", START + 150);
+		wheel.schedule("a", START + 550);
+
+		assertThat(wheel.size()).isEqualTo(1);
+		assertThat(wheel.advance(START + 500)).isEmpty();
+		assertThat(wheel.advance(START + 600)).containsExactly("a");
+	}
+
+	@Test
+	public void cancelled_Deadline_Is_Never_Reported() {
+		HashedTimingWheel wheel = new HashedTimingWheel(TICK, 8, START);
+		wheel.schedule("a", START + 150);
+		wheel.schedule("b", START + 150);
+		wheel.schedule("c", START + 150);
+
+		assertThat(wheel.cancel("b")).isTrue();
+		assertThat(wheel.cancel("b")).isFalse();
+		List<String> due = wheel.advance(START + 200);
+		assertThat(due).containsExactlyInAnyOrder("a", "c");
+	}
+
+	@Test
+	public void deadline_In_The_Past_Is_Reported_On_Next_Advance() {
+		HashedTimingWheel wheel = new HashedTimingWheel(TICK, 8, START);
+		wheel.advance(START + 1000);
+		wheel.schedule("late", START);
+
+		assertThat(wheel.advance(START + 1100)).containsExactly("late");
+	}
+
+}
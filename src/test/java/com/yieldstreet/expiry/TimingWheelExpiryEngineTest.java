@@ -0,0 +1,122 @@
+package com.yieldstreet.expiry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.yieldstreet.entity.Accreditation;
+import com.yieldstreet.entity.AccreditationStatus;
+import com.yieldstreet.rabbit.AccreditationPartitioner;
+import com.yieldstreet.rabbit.AccreditationStateChangeEvent;
+import com.yieldstreet.rabbit.RabbitMQSender;
+import com.yieldstreet.repository.AccreditationActivityView;
+import com.yieldstreet.repository.AccreditationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * two partitions and this instance listens to partition 0 only, the repository and the sender are mocked
+ */
+class TimingWheelExpiryEngineTest {
+
+	private AccreditationRepository accreditationRepository;
+	private RabbitMQSender rabbitMQSender;
+	private AccreditationPartitioner partitioner;
+	private TimingWheelExpiryEngine engine;
+	private String local;
+	private String remote;
+
+	@BeforeEach
+	public void setUp() {
+		partitioner = new AccreditationPartitioner();
+		ReflectionTestUtils.setField(partitioner, "partitionCount", 2);
+		ReflectionTestUtils.setField(partitioner, "partitionListeners", "0");
+		local = idInPartition(0);
+		remote = idInPartition(1);
+		accreditationRepository = mock(AccreditationRepository.class);
+		rabbitMQSender = mock(RabbitMQSender.class);
+		engine = new TimingWheelExpiryEngine();
+		ReflectionTestUtils.setField(engine, "accreditationRepository", accreditationRepository);
+		ReflectionTestUtils.setField(engine, "rabbitMQSender", rabbitMQSender);
+		ReflectionTestUtils.setField(engine, "partitioner", partitioner);
+		ReflectionTestUtils.setField(engine, "millisToExpiry", 1000L);
+		ReflectionTestUtils.setField(engine, "tickMillis", 1L);
+		ReflectionTestUtils.setField(engine, "wheelSize", 64);
+		ReflectionTestUtils.setField(engine, "batchSize", 10);
+		ReflectionTestUtils.setField(engine, "resendMillis", 60000L);
+		ReflectionTestUtils.setField(engine, "resendMaxSize", 100L);
+		engine.init();
+		// both confirmed long ago, so both are overdue
+		List<AccreditationActivityView> confirmed = List.of(activity(local), activity(remote));
+		when(accreditationRepository.findInactiveSince(anyInt(), anyLong(), anyLong(), anyString(), any()))
+				.thenReturn(confirmed);
+	}
+
+	@Test
+	public void only_The_Local_Partitions_Are_Loaded_Or_Scheduled() {
+		engine.load();
+		engine.schedule(remote, 0);
+
+		assertThat(wheel().contains(local)).isTrue();
+		assertThat(wheel().contains(remote)).isFalse();
+	}
+
+	@Test
+	public void resync_Brings_Back_A_Lost_Deadline_But_Not_One_Just_Sent() throws InterruptedException {
+		when(accreditationRepository.findAllById(List.of(local))).thenReturn(List.of(confirmedAccreditation(local)));
+		engine.load();
+		Thread.sleep(5);
+		engine.tick();
+
+		ArgumentCaptor<List<AccreditationStateChangeEvent>> sent = ArgumentCaptor.forClass(List.class);
+		verify(rabbitMQSender).sendAll(sent.capture());
+		assertThat(sent.getValue()).extracting(AccreditationStateChangeEvent::getAccreditationId).containsExactly(local);
+
+		engine.resync();
+		assertThat(wheel().contains(local)).isFalse();
+
+		// once the resend window has passed an accreditation which is still confirmed must have lost its event
+		((Cache<?, ?>) ReflectionTestUtils.getField(engine, "recentlySent")).invalidateAll();
+		engine.resync();
+		assertThat(wheel().contains(local)).isTrue();
+	}
+
+	private HashedTimingWheel wheel() {
+		return (HashedTimingWheel) ReflectionTestUtils.getField(engine, "wheel");
+	}
+
+	private String idInPartition(int partition) {
+		for(int i = 0; ; i++){
+			String id = String.format("00000001-0001-0001-0001-%012d", i);
+			if(partitioner.partitionOf(id) == partition){
+				return id;
+			}
+		}
+	}
+
+	private static AccreditationActivityView activity(String id) {
+		AccreditationActivityView view = mock(AccreditationActivityView.class);
+		when(view.getAccreditationId()).thenReturn(id);
+		when(view.getLastUpdateTime()).thenReturn(0L);
+		return view;
+	}
+
+	private static Accreditation confirmedAccreditation(String id) {
+		Accreditation acc = new Accreditation();
+		acc.setAccreditationId(id);
+		acc.setStatus(AccreditationStatus.CONFIRMED);
+		acc.setLastUpdateTime(0L);
+		return acc;
+	}
+
+}
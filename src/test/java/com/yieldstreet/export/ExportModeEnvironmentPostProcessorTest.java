@@ -0,0 +1,44 @@
+package com.yieldstreet.export;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * boots an empty application the way the export job is started, through spring.factories, and checks what the
+ * export mode switches off
+ */
+class ExportModeEnvironmentPostProcessorTest {
+
+	@Configuration(proxyBeanMethods = false)
+	static class Empty {
+	}
+
+	@Test
+	public void export_File_Starts_Without_The_Web_Server_Listeners_Or_Jobs() {
+		try(ConfigurableApplicationContext context = new SpringApplication(Empty.class)
+				.run("--accreditation-export-file=/tmp/accreditations.jsonl")){
+			assertThat(context).isNotInstanceOf(WebServerApplicationContext.class);
+			assertThat(context.getEnvironment().getProperty("spring.rabbitmq.listener.simple.auto-startup")).isEqualTo("false");
+			assertThat(context.getEnvironment().getProperty("spring.quartz.auto-startup")).isEqualTo("false");
+			assertThat(context.getEnvironment().getProperty("spring.quartz.job-store-type")).isEqualTo("memory");
+			assertThat(context.getEnvironment().getProperty("spring.flyway.enabled")).isEqualTo("false");
+		}
+	}
+
+	@Test
+	public void without_An_Export_File_Nothing_Is_Changed() {
+		SpringApplication application = new SpringApplication(Empty.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		try(ConfigurableApplicationContext context = application.run()){
+			assertThat(context.getEnvironment().getPropertySources().contains(ExportModeEnvironmentPostProcessor.PROPERTY_SOURCE)).isFalse();
+			assertThat(context.getEnvironment().getProperty("spring.quartz.auto-startup")).isNull();
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.yieldstreet.rabbit;
+
+import com.yieldstreet.entity.AccreditationStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * plain unit test of the binary wire format, and of picking it by content type next to JSON.
+ */
+class AccreditationEventBinaryConverterTest {
+	private final AccreditationEventBinaryConverter converter = new AccreditationEventBinaryConverter();
+
+	@Test
+	public void uuid_Event_Round_Trips_In_28_Bytes() {
+		AccreditationStateChangeEvent event = new AccreditationStateChangeEvent(UUID.randomUUID().toString(),
+				AccreditationStatus.EXPIRED, AccreditationStateChangeEvent.Source.EXPIRY);
+
+		Message message = converter.toMessage(event, new MessageProperties());
+
+		assertThat(message.getBody()).hasSize(28);
+		assertThat(message.getMessageProperties().getContentType()).isEqualTo(AccreditationEventBinaryConverter.CONTENT_TYPE);
+		assertSame(event, (AccreditationStateChangeEvent)converter.fromMessage(message));
+	}
+
+	@Test
+	public void non_UUID_Id_Round_Trips_As_Text() {
+		AccreditationStateChangeEvent event = new AccreditationStateChangeEvent("not-a-uuid",
+				AccreditationStatus.CONFIRMED, AccreditationStateChangeEvent.Source.API);
+
+		assertSame(event, converter.decode(converter.encode(event)));
+	}
+
+	@Test
+	public void unknown_Version_Is_Rejected() {
+		AccreditationStateChangeEvent event = new AccreditationStateChangeEvent(UUID.randomUUID().toString(),
+				AccreditationStatus.FAILED, AccreditationStateChangeEvent.Source.API);
+		byte[] body = converter.encode(event);
+		body[0] = (byte)(AccreditationStateChangeEvent.CURRENT_VERSION + 1);
+
+		assertThatThrownBy(() -> converter.decode(body)).isInstanceOf(MessageConversionException.class);
+	}
+
+	@Test
+	public void json_And_Binary_Are_Told_Apart_By_Content_Type() {
+		ContentTypeDelegatingMessageConverter delegating = new ContentTypeDelegatingMessageConverter(new Jackson2JsonMessageConverter());
+		delegating.addDelegate(AccreditationEventBinaryConverter.CONTENT_TYPE, converter);
+		AccreditationStateChangeEvent event = new AccreditationStateChangeEvent(UUID.randomUUID().toString(),
+				AccreditationStatus.CONFIRMED, AccreditationStateChangeEvent.Source.API);
+
+		Message json = new Jackson2JsonMessageConverter().toMessage(event, new MessageProperties());
+		Message binary = converter.toMessage(event, new MessageProperties());
+
+		assertSame(event, (AccreditationStateChangeEvent)delegating.fromMessage(json));
+		assertSame(event, (AccreditationStateChangeEvent)delegating.fromMessage(binary));
+	}
+
+	private void assertSame(AccreditationStateChangeEvent expected, AccreditationStateChangeEvent actual) {
+		assertThat(actual.getVersion()).isEqualTo(expected.getVersion());
+		assertThat(actual.getAccreditationId()).isEqualTo(expected.getAccreditationId());
+		assertThat(actual.getTargetStatus()).isEqualTo(expected.getTargetStatus());
+		assertThat(actual.getSource()).isEqualTo(expected.getSource());
+		assertThat(actual.getTimestamp()).isEqualTo(expected.getTimestamp());
+	}
+
+}
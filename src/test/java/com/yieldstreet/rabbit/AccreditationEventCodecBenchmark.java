@@ -0,0 +1,68 @@
+package com.yieldstreet.rabbit;
+
+import com.yieldstreet.entity.AccreditationStatus;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.UUID;
+
+/**
+ * compares the JSON and binary wire formats for state change events on encode/decode throughput and bytes
+ * per message. it is not a test, run it by hand from the IDE or with:
+ *   mvn test-compile exec:java -Dexec.mainClass=com.yieldstreet.rabbit.AccreditationEventCodecBenchmark -Dexec.classpathScope=test
+ * optional arguments are the number of messages per round and the number of measured rounds.
+ */
+public class AccreditationEventCodecBenchmark {
+
+	public static void main(String[] args) {
+		int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		AccreditationStateChangeEvent[] events = new AccreditationStateChangeEvent[1024];
+		for(int i = 0; i < events.length; i++){
+			events[i] = new AccreditationStateChangeEvent(UUID.randomUUID().toString(),
+					AccreditationStatus.values()[i % AccreditationStatus.values().length],
+					AccreditationStateChangeEvent.Source.values()[i % 2]);
+		}
+		Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+		AccreditationEventBinaryConverter binary = new AccreditationEventBinaryConverter();
+		// warm up both so the JIT has compiled the paths we measure
+		run("json", json, events, messages, 2, false);
+		run("binary", binary, events, messages, 2, false);
+		run("json", json, events, messages, rounds, true);
+		run("binary", binary, events, messages, rounds, true);
+	}
+
+	private static void run(String name, MessageConverter converter, AccreditationStateChangeEvent[] events,
+							int messages, int rounds, boolean report) {
+		Message[] encoded = new Message[events.length];
+		long encodeNanos = 0;
+		long decodeNanos = 0;
+		long bytes = 0;
+		long sink = 0;
+		for(int round = 0; round < rounds; round++){
+			long start = System.nanoTime();
+			for(int i = 0; i < messages; i++){
+				int slot = i & (events.length - 1);
+				encoded[slot] = converter.toMessage(events[slot], new MessageProperties());
+			}
+			encodeNanos += System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < messages; i++){
+				Object decoded = converter.fromMessage(encoded[i & (events.length - 1)]);
+				sink += decoded.hashCode();
+			}
+			decodeNanos += System.nanoTime() - start;
+		}
+		for(Message message : encoded){
+			bytes += message.getBody().length;
+		}
+		if(report){
+			long total = (long)messages * rounds;
+			System.out.printf("%-6s encode %,12.0f msg/s   decode %,12.0f msg/s   %6.1f bytes/msg   (%d)%n",
+					name, total * 1e9 / encodeNanos, total * 1e9 / decodeNanos, (double)bytes / encoded.length, sink & 1);
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.yieldstreet.rabbit;
+
+import com.yieldstreet.entity.Accreditation;
+import com.yieldstreet.entity.AccreditationHistory;
+import com.yieldstreet.entity.AccreditationStatus;
+import com.yieldstreet.repository.AccreditationRepository;
+import com.yieldstreet.service.AccreditationStateMachine;
+import com.yieldstreet.service.AccreditationWritePipeline;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * the batch listener, the state machine is mocked to just stamp the accreditation with the time it is given.
+ */
+class RabbitMQReceiverTest {
+
+	@Test
+	public void transitions_Of_One_Accreditation_In_A_Batch_Get_Increasing_Times() {
+		Accreditation acc = new Accreditation();
+		acc.setAccreditationId("a");
+		acc.setStatus(AccreditationStatus.PENDING);
+		Accreditation other = new Accreditation();
+		other.setAccreditationId("b");
+		other.setStatus(AccreditationStatus.PENDING);
+
+		AccreditationRepository accreditationRepository = mock(AccreditationRepository.class);
+		when(accreditationRepository.findAllById(any())).thenReturn(List.of(acc, other));
+		List<String> ids = new ArrayList<>();
+		List<Long> times = new ArrayList<>();
+		AccreditationStateMachine stateMachine = mock(AccreditationStateMachine.class);
+		when(stateMachine.transition(any(), any(), anyLong())).thenAnswer(inv -> {
+			Accreditation current = inv.getArgument(0);
+			long time = inv.getArgument(2);
+			ids.add(current.getAccreditationId());
+			times.add(time);
+			current.setStatus(inv.getArgument(1));
+			current.setLastUpdateTime(time);
+			return new AccreditationHistory();
+		});
+		AccreditationWritePipeline pipeline = mock(AccreditationWritePipeline.class);
+
+		RabbitMQReceiver receiver = new RabbitMQReceiver();
+		ReflectionTestUtils.setField(receiver, "accreditationRepository", accreditationRepository);
+		ReflectionTestUtils.setField(receiver, "accreditationStateMachine", stateMachine);
+		ReflectionTestUtils.setField(receiver, "accreditationWritePipeline", pipeline);
+
+		receiver.receiveEvents(List.of(event("a", AccreditationStatus.CONFIRMED), event("b", AccreditationStatus.CONFIRMED),
+				event("a", AccreditationStatus.EXPIRED), event("a", AccreditationStatus.PENDING)));
+
+		assertThat(ids).containsExactly("a", "b", "a", "a");
+		assertThat(times.get(2)).isGreaterThan(times.get(0));
+		assertThat(times.get(3)).isGreaterThan(times.get(2));
+		assertThat(times.get(1)).isEqualTo(times.get(0));
+	}
+
+	private static AccreditationStateChangeEvent event(String id, AccreditationStatus target) {
+		return new AccreditationStateChangeEvent(id, target, AccreditationStateChangeEvent.Source.API);
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.yieldstreet.rabbit;
+
+import com.yieldstreet.entity.AccreditationStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * the sender against a mocked template with confirms on, the test plays the broker by completing the correlations.
+ */
+class RabbitMQSenderTest {
+
+	private final List<CorrelationData> published = new CopyOnWriteArrayList<>();
+	private RabbitMQSender sender;
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	public void setUp() {
+		ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+		when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+		RabbitTemplate template = mock(RabbitTemplate.class);
+		when(template.getConnectionFactory()).thenReturn(connectionFactory);
+		when(template.invoke(any())).thenAnswer(inv ->
+				inv.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(template));
+		doAnswer(inv -> published.add(inv.getArgument(3)))
+				.when(template).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+
+		AccreditationPartitioner partitioner = new AccreditationPartitioner();
+		ReflectionTestUtils.setField(partitioner, "queueName", "accreditation-queue");
+		ReflectionTestUtils.setField(partitioner, "routingkey", "accreditation-routingkey");
+		ReflectionTestUtils.setField(partitioner, "partitionCount", 4);
+
+		meterRegistry = new SimpleMeterRegistry();
+		sender = new RabbitMQSender();
+		ReflectionTestUtils.setField(sender, "rabbitTemplate", template);
+		ReflectionTestUtils.setField(sender, "exchange", "accreditation-exchange");
+		ReflectionTestUtils.setField(sender, "wireFormat", "json");
+		ReflectionTestUtils.setField(sender, "maxInFlight", 2);
+		ReflectionTestUtils.setField(sender, "publishBatchSize", 10);
+		ReflectionTestUtils.setField(sender, "confirmTimeoutMillis", 1000L);
+		ReflectionTestUtils.setField(sender, "partitioner", partitioner);
+		ReflectionTestUtils.setField(sender, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(sender, "environment", new MockEnvironment());
+		sender.start();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		sender.stop();
+	}
+
+	@Test
+	public void send_Completes_When_The_Broker_Acks() {
+		CompletableFuture<Void> result = sender.sendAsync(event("a"));
+		await().atMost(2, TimeUnit.SECONDS).until(() -> published.size() == 1);
+		assertThat(result).isNotDone();
+
+		published.get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+		assertThat(result).succeedsWithin(1, TimeUnit.SECONDS);
+		assertThat(meterRegistry.timer("accreditation.publish.confirm").count()).isEqualTo(1);
+	}
+
+	@Test
+	public void nack_Fails_The_Send_And_Is_Counted() {
+		CompletableFuture<Void> result = sender.sendAsync(event("a"));
+		await().atMost(2, TimeUnit.SECONDS).until(() -> published.size() == 1);
+
+		published.get(0).getFuture().complete(new CorrelationData.Confirm(false, "queue full"));
+		assertThatThrownBy(result::join).hasCauseInstanceOf(AmqpException.class).hasMessageContaining("queue full");
+		assertThat(meterRegistry.counter("accreditation.publish.nack").count()).isEqualTo(1);
+	}
+
+	@Test
+	public void full_Window_Pushes_Back_Until_An_Ack_Frees_A_Slot() throws Exception {
+		sender.sendAsync(event("a"));
+		sender.sendAsync(event("b"));
+		await().atMost(2, TimeUnit.SECONDS).until(() -> published.size() == 2);
+
+		// nothing acked yet, the third caller is held back
+		CompletableFuture<CompletableFuture<Void>> third = CompletableFuture.supplyAsync(() -> sender.sendAsync(event("c")));
+		Thread.sleep(200);
+		assertThat(third).isNotDone();
+		assertThat(published).hasSize(2);
+
+		published.get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+		await().atMost(2, TimeUnit.SECONDS).until(() -> published.size() == 3);
+		published.get(2).getFuture().complete(new CorrelationData.Confirm(true, null));
+		assertThat(third.get(1, TimeUnit.SECONDS)).succeedsWithin(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void unconfirmed_Send_Times_Out_And_Frees_Its_Slot() {
+		CompletableFuture<Void> result = sender.sendAsync(event("a"));
+		// the 1s confirm timeout fires on a shared JDK timer, so give it room on a busy machine
+		assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+		assertThat(meterRegistry.counter("accreditation.publish.timeout").count()).isEqualTo(1);
+		assertThat(meterRegistry.get("accreditation.publish.in.flight").gauge().value()).isZero();
+	}
+
+	private static AccreditationStateChangeEvent event(String id) {
+		return new AccreditationStateChangeEvent(id, AccreditationStatus.CONFIRMED, AccreditationStateChangeEvent.Source.API);
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.yieldstreet.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yieldstreet.dto.AccreditationTypeAndStatusDTO;
+import com.yieldstreet.dto.UserAccreditationsDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * the read tier controller on its own, the repository is mocked. AssignmentApplicationTests compares it
+ * with the MVC GET against a real database.
+ */
+class ReactiveAccreditationControllerTest {
+	private static final String USER_ID = "g8NlYJnk7zK9BlB1J2Ebjs0AkhCTpE1V";
+	private static final String ACCREDITATION_ID = "0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b";
+
+	private ReactiveAccreditationRepository repository;
+	private WebTestClient client;
+
+	@BeforeEach
+	public void setUp() {
+		repository = mock(ReactiveAccreditationRepository.class);
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+				Map.of("accreditation-read-timeout-millis", "200", "accreditation-read-retry-after-seconds", "1")));
+		context.register(WebFluxConfig.class);
+		// the mock is a subclass, so its @Autowired field still wants a client
+		context.registerBean(DatabaseClient.class, () -> mock(DatabaseClient.class));
+		context.registerBean(ReactiveAccreditationRepository.class, () -> repository);
+		context.registerBean(ReactiveAccreditationController.class);
+		context.refresh();
+		client = WebTestClient.bindToApplicationContext(context).build();
+	}
+
+	@Configuration
+	@EnableWebFlux
+	static class WebFluxConfig {
+	}
+
+	@Test
+	public void returns_The_Json_Of_UserAccreditationsDTO() throws Exception {
+		AccreditationTypeAndStatusDTO status = new AccreditationTypeAndStatusDTO("PENDING", "BY_INCOME");
+		when(repository.findStatusesByUserId(USER_ID)).thenReturn(Flux.just(Map.entry(ACCREDITATION_ID, status)));
+		String expected = new ObjectMapper().writeValueAsString(
+				new UserAccreditationsDTO(USER_ID, Map.of(ACCREDITATION_ID, status)));
+
+		client.get().uri("/user/{user_id}/accreditation", USER_ID)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody().json(expected, true);
+	}
+
+	@Test
+	public void user_Without_Accreditations_Gets_An_Empty_Map() {
+		when(repository.findStatusesByUserId(USER_ID)).thenReturn(Flux.empty());
+
+		client.get().uri("/user/{user_id}/accreditation", USER_ID)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody().json("{\"user_id\":\"" + USER_ID + "\",\"accreditation_statuses\":{}}", true);
+	}
+
+	@Test
+	public void no_Connection_Is_A_503_With_Retry_After() {
+		when(repository.findStatusesByUserId(USER_ID))
+				.thenReturn(Flux.error(new DataAccessResourceFailureException("Failed to obtain R2DBC Connection")));
+
+		client.get().uri("/user/{user_id}/accreditation", USER_ID)
+				.exchange()
+				.expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+				.expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+	}
+
+	@Test
+	public void slow_Read_Times_Out_As_A_503_With_Retry_After() {
+		when(repository.findStatusesByUserId(USER_ID)).thenReturn(Flux.never());
+
+		client.get().uri("/user/{user_id}/accreditation", USER_ID)
+				.exchange()
+				.expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+				.expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.yieldstreet.service;
+
+import com.yieldstreet.dto.AccreditationHistoricTypeAndStatusDTO;
+import com.yieldstreet.dto.AccreditationIdDTO;
+import com.yieldstreet.dto.AccreditationOutcomeDTO;
+import com.yieldstreet.dto.BulkOutcomeDTO;
+import com.yieldstreet.dto.BulkOutcomeResultDTO;
+import com.yieldstreet.entity.Accreditation;
+import com.yieldstreet.entity.AccreditationStatus;
+import com.yieldstreet.rabbit.AccreditationStateChangeEvent;
+import com.yieldstreet.rabbit.RabbitMQSender;
+import com.yieldstreet.repository.AccreditationHistoryRepository;
+import com.yieldstreet.repository.AccreditationHistoryView;
+import com.yieldstreet.repository.AccreditationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * the single and bulk PUT and the history reads, with the repositories and the sender mocked
+ */
+class AccreditationServiceTest {
+	private static final String ID = "00000001-0001-0001-0001-000000000001";
+
+	private AccreditationRepository accreditationRepository;
+	private AccreditationHistoryRepository accreditationHistoryRepository;
+	private RabbitMQSender rabbitMQSender;
+	private AccreditationService service;
+
+	@BeforeEach
+	public void setUp() {
+		accreditationRepository = mock(AccreditationRepository.class);
+		rabbitMQSender = mock(RabbitMQSender.class);
+		accreditationHistoryRepository = mock(AccreditationHistoryRepository.class);
+		service = new AccreditationService();
+		ReflectionTestUtils.setField(service, "accreditationRepository", accreditationRepository);
+		ReflectionTestUtils.setField(service, "rabbitMQSender", rabbitMQSender);
+		ReflectionTestUtils.setField(service, "accreditationHistoryRepository", accreditationHistoryRepository);
+		ReflectionTestUtils.setField(service, "historyPageSize", 1);
+		ReflectionTestUtils.setField(service, "maxHistoryPageSize", 2);
+		ReflectionTestUtils.setField(service, "updateMode", "queue");
+		ReflectionTestUtils.setField(service, "maxBulkOutcomes", 10);
+		when(accreditationRepository.findById(ID)).thenReturn(Optional.of(accreditation(ID, AccreditationStatus.PENDING)));
+	}
+
+	@Test
+	public void put_With_A_Short_Form_Id_Is_Routed_By_The_Canonical_Id() {
+		AccreditationIdDTO result = service.updateAccreditation("1-1-1-1-1",
+				new AccreditationOutcomeDTO(AccreditationStatus.CONFIRMED.name()));
+
+		ArgumentCaptor<AccreditationStateChangeEvent> sent = ArgumentCaptor.forClass(AccreditationStateChangeEvent.class);
+		verify(rabbitMQSender).send(sent.capture());
+		assertThat(sent.getValue().getAccreditationId()).isEqualTo(ID);
+		assertThat(result.getAccreditationId()).isEqualTo(ID);
+	}
+
+	@Test
+	public void put_With_An_Upper_Case_Id_Is_Routed_By_The_Canonical_Id() {
+		service.updateAccreditation(ID.toUpperCase(), new AccreditationOutcomeDTO(AccreditationStatus.CONFIRMED.name()));
+
+		ArgumentCaptor<AccreditationStateChangeEvent> sent = ArgumentCaptor.forClass(AccreditationStateChangeEvent.class);
+		verify(rabbitMQSender).send(sent.capture());
+		assertThat(sent.getValue().getAccreditationId()).isEqualTo(ID);
+	}
+
+	@Test
+	public void bulk_Put_Finds_An_Upper_Case_Id_And_Refuses_A_Second_Spelling_Of_It() {
+		when(accreditationRepository.findAllById(anySet())).thenReturn(List.of(accreditation(ID, AccreditationStatus.PENDING)));
+		List<AccreditationStateChangeEvent> sent = new ArrayList<>();
+		when(rabbitMQSender.sendAllAsync(anyList())).thenAnswer(inv -> {
+			List<AccreditationStateChangeEvent> events = inv.getArgument(0);
+			sent.addAll(events);
+			return events.stream().map(event -> CompletableFuture.<Void>completedFuture(null)).toList();
+		});
+
+		List<BulkOutcomeResultDTO> results = service.updateAccreditations(List.of(
+				bulkOutcome(ID.toUpperCase()), bulkOutcome("1-1-1-1-1")));
+
+		assertThat(results).extracting(BulkOutcomeResultDTO::getStatus).containsExactly(200, 400);
+		assertThat(results).extracting(BulkOutcomeResultDTO::getAccreditationId).containsExactly(ID, ID);
+		assertThat(sent).extracting(AccreditationStateChangeEvent::getAccreditationId).containsExactly(ID);
+	}
+
+	@Test
+	public void ndjson_History_Is_Read_A_Page_At_A_Time_From_The_Last_Row() {
+		List<AccreditationHistoryView> history = historyOf(3);
+		List<AccreditationHistoricTypeAndStatusDTO> streamed = new ArrayList<>();
+
+		service.streamAccreditationHistories(ID, null, streamed::add);
+
+		assertThat(streamed).extracting(AccreditationHistoricTypeAndStatusDTO::getLastUpdateTime).containsExactly("1", "2", "3");
+		verify(accreditationHistoryRepository).findHistoryAfter(eq(ID), eq(-1L), anyString(), eq(Limit.of(2)));
+		verify(accreditationHistoryRepository).findHistoryAfter(ID, 2L, history.get(1).getAccreditationHistoryId(), Limit.of(2));
+	}
+
+	@Test
+	public void history_Without_Cursor_Or_Limit_Is_All_Of_It() {
+		historyOf(3);
+
+		assertThat(service.getAccreditationHistories(ID, null, null).getHistories()).hasSize(3);
+		assertThat(service.getAccreditationHistories(ID, null, 1).getHistories()).hasSize(1);
+		verify(accreditationHistoryRepository, times(3)).findHistoryAfter(eq(ID), anyLong(), anyString(), any(Limit.class));
+	}
+
+	/**
+	 * a history of rows at times 1..count, the mocked query returns the rows after the cursor up to the limit
+	 */
+	private List<AccreditationHistoryView> historyOf(int count) {
+		List<AccreditationHistoryView> rows = new ArrayList<>();
+		for(int i = 1; i <= count; i++){
+			AccreditationHistoryView row = mock(AccreditationHistoryView.class);
+			when(row.getAccreditationHistoryId()).thenReturn("00000000-0000-0000-0000-00000000000" + i);
+			when(row.getLastUpdateTime()).thenReturn((long)i);
+			when(row.getStatusCode()).thenReturn(AccreditationStatus.PENDING.getCode());
+			when(row.getTypeCode()).thenReturn(1);
+			rows.add(row);
+		}
+		when(accreditationHistoryRepository.findHistoryAfter(eq(ID), anyLong(), anyString(), any(Limit.class))).thenAnswer(inv -> {
+			long afterTime = inv.getArgument(1);
+			Limit limit = inv.getArgument(3);
+			return rows.stream().filter(row -> row.getLastUpdateTime() > afterTime).limit(limit.max()).toList();
+		});
+		return rows;
+	}
+
+	private static BulkOutcomeDTO bulkOutcome(String accreditationId) {
+		BulkOutcomeDTO dto = new BulkOutcomeDTO();
+		dto.setAccreditationId(accreditationId);
+		dto.setOutcome(AccreditationStatus.CONFIRMED.name());
+		return dto;
+	}
+
+	private static Accreditation accreditation(String id, AccreditationStatus status) {
+		Accreditation acc = new Accreditation();
+		acc.setAccreditationId(id);
+		acc.setStatus(status);
+		return acc;
+	}
+
+}